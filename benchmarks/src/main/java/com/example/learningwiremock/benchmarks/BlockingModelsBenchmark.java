@@ -0,0 +1,108 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.service.MovieRestClient;
+import com.example.learningwiremock.service.ReactiveMovieClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for {@code callers} concurrent callers to each complete one year lookup, which the stub
+ * answers after 50-250 ms: a platform thread per blocking caller, a virtual thread per blocking
+ * caller, and the reactive client with all lookups in flight on the event loops. Run with
+ * {@code -prof gc} to compare allocation as well.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss256k")
+@State(Scope.Benchmark)
+public class BlockingModelsBenchmark {
+    private static final int YEAR = 2012;
+
+    @Param({"10000"})
+    public int callers;
+
+    MovieServiceStub stub;
+    MovieRestClient movieRestClient;
+    ReactiveMovieClient reactiveMovieClient;
+
+    @Setup(Level.Trial)
+    public void start() {
+        // neither the pool nor the bulkhead may be what limits concurrency here
+        stub = new MovieServiceStub(10,
+                "moviesapp.pool.max-connections=" + callers,
+                "moviesapp.pool.pending-acquire-max-count=" + 2 * callers,
+                "moviesapp.resilience.defaults.max-concurrent-calls=" + 2 * callers);
+        movieRestClient = stub.bean(MovieRestClient.class);
+        reactiveMovieClient = stub.bean(ReactiveMovieClient.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stub.close();
+    }
+
+    @Benchmark
+    public int platformThreads() throws Exception {
+        return blockingCallers(Thread.ofPlatform().name("caller-", 0).factory());
+    }
+
+    @Benchmark
+    public int virtualThreads() throws Exception {
+        return blockingCallers(Thread.ofVirtual().name("caller-", 0).factory());
+    }
+
+    @Benchmark
+    public int reactive() {
+        return Flux.range(0, callers)
+                .flatMap(i -> reactiveMovieClient.getMovieByYear(YEAR).collectList(), callers)
+                .map(List::size)
+                .reduce(0, Integer::sum)
+                .block();
+    }
+
+    private int blockingCallers(ThreadFactory threads) throws Exception {
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(threads)) {
+            List<Future<List<Movie>>> results = new ArrayList<>(callers);
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(this::yearLookup));
+            }
+            int movies = 0;
+            for (Future<List<Movie>> result : results) {
+                movies += result.get().size();
+            }
+            return movies;
+        }
+    }
+
+    private List<Movie> yearLookup() {
+        try {
+            return movieRestClient.getMovieByYear(YEAR);
+        } catch (MovieNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
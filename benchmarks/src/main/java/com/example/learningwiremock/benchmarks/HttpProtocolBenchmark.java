@@ -0,0 +1,81 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.model.MovieBatchResult;
+import com.example.learningwiremock.service.MovieRestClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Latency of a fan-out of {@code batchSize} id lookups, all in flight at once, over HTTP/1.1 and
+ * over cleartext HTTP/2. The open connections of the pool are printed after every iteration: one
+ * per in-flight lookup over HTTP/1.1, {@code batchSize / max-concurrent-streams} over HTTP/2.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpProtocolBenchmark {
+    private static final String[] CONNECTION_GAUGES = {
+            "reactor.netty.connection.provider.active.connections",
+            "reactor.netty.connection.provider.idle.connections"};
+
+    @Param({"HTTP11", "H2C"})
+    public String protocol;
+
+    @Param({"200"})
+    public int batchSize;
+
+    MovieServiceStub stub;
+    MovieRestClient movieRestClient;
+    MeterRegistry meterRegistry;
+    List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void start() {
+        stub = new MovieServiceStub(10,
+                "moviesapp.http.protocols=" + protocol,
+                "moviesapp.http.max-concurrent-streams=100",
+                "moviesapp.batch.concurrency=" + batchSize);
+        movieRestClient = stub.bean(MovieRestClient.class);
+        meterRegistry = stub.bean(MeterRegistry.class);
+        ids = LongStream.rangeClosed(1, batchSize).boxed().toList();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printConnections() {
+        double open = 0;
+        for (String gauge : CONNECTION_GAUGES) {
+            open += meterRegistry.find(gauge).gauges().stream().mapToDouble(Gauge::value).sum();
+        }
+        System.out.printf("%n%s open connections: %.0f%n", protocol, open);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stub.close();
+    }
+
+    @Benchmark
+    public MovieBatchResult fanOut() {
+        return movieRestClient.getMoviesByIds(ids);
+    }
+}
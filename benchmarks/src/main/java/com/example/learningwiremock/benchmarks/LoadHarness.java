@@ -0,0 +1,164 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.service.MovieRestClient;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a weighted mix of client calls for a fixed duration and records their latency in
+ * microseconds.
+ * <ul>
+ *     <li>{@link Mode#OPEN}: calls are started on a fixed schedule of {@code targetRps} regardless of
+ *     how long earlier calls take, and latency is measured from the intended start. Time spent
+ *     queued behind a saturated client therefore counts, so the histogram does not suffer from
+ *     coordinated omission.</li>
+ *     <li>{@link Mode#CLOSED}: {@code concurrency} workers issue calls back to back, optionally paced
+ *     to {@code targetRps}; stalls are back-filled with
+ *     {@link Histogram#recordValueWithExpectedInterval(long, long)}.</li>
+ * </ul>
+ */
+public class LoadHarness {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    public enum Mode { OPEN, CLOSED }
+
+    @FunctionalInterface
+    public interface Call {
+        void run(MovieRestClient client) throws Throwable;
+    }
+
+    public record Scenario(String name, int weight, Call call) {
+    }
+
+    private final MovieRestClient client;
+    private final List<Scenario> scenarios;
+    private final int[] cumulativeWeights;
+
+    public LoadHarness(MovieRestClient client, List<Scenario> scenarios) {
+        this.client = client;
+        this.scenarios = List.copyOf(scenarios);
+        this.cumulativeWeights = new int[scenarios.size()];
+        int total = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            total += scenarios.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public LoadReport run(Mode mode, int targetRps, int concurrency, Duration duration) throws InterruptedException {
+        if (mode == Mode.OPEN && targetRps <= 0) {
+            throw new IllegalArgumentException("Open mode needs a target rate above zero, got " + targetRps + " rps");
+        }
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            stats.put(scenario.name(), new Stats());
+        }
+        long startNanos = System.nanoTime();
+        if (mode == Mode.OPEN) {
+            runOpen(stats, targetRps, concurrency, duration);
+        } else {
+            runClosed(stats, targetRps, concurrency, duration);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+
+        List<LoadReport.Line> lines = new ArrayList<>();
+        stats.forEach((name, s) -> lines.add(new LoadReport.Line(name, s.latency.copy(), s.errors.get())));
+        return new LoadReport(mode, targetRps, concurrency, elapsed, lines);
+    }
+
+    private void runOpen(Map<String, Stats> stats, int targetRps, int concurrency, Duration duration) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / targetRps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Scenario scenario = pick();
+            Stats scenarioStats = stats.get(scenario.name());
+            workers.execute(() -> {
+                invoke(scenario, scenarioStats);
+                scenarioStats.latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended)));
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void runClosed(Map<String, Stats> stats, int targetRps, int concurrency, Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        long intervalNanos = targetRps > 0 ? TimeUnit.SECONDS.toNanos(1) * concurrency / targetRps : 0;
+        long expectedIntervalMicros = TimeUnit.NANOSECONDS.toMicros(intervalNanos);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            Thread worker = new Thread(() -> {
+                long next = System.nanoTime();
+                while (next < end) {
+                    Scenario scenario = pick();
+                    Stats scenarioStats = stats.get(scenario.name());
+                    long start = System.nanoTime();
+                    invoke(scenario, scenarioStats);
+                    long micros = Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (expectedIntervalMicros > 0) {
+                        scenarioStats.latency.recordValueWithExpectedInterval(micros, expectedIntervalMicros);
+                        next += intervalNanos;
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        scenarioStats.latency.recordValue(micros);
+                        next = System.nanoTime();
+                    }
+                }
+            }, "load-worker-" + w);
+            worker.start();
+            threads.add(worker);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void invoke(Scenario scenario, Stats scenarioStats) {
+        try {
+            scenario.call().run(client);
+        } catch (Throwable ex) {
+            scenarioStats.errors.incrementAndGet();
+        }
+    }
+
+    private Scenario pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return scenarios.get(i);
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private static class Stats {
+        final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.learningwiremock.benchmarks;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Latency percentiles (milliseconds), throughput and error rate per scenario of one load run.
+ */
+public record LoadReport(LoadHarness.Mode mode, int targetRps, int concurrency, Duration elapsed, List<Line> lines) {
+
+    public record Line(String scenario, Histogram latencyMicros, long errors) {
+
+        long calls() {
+            return latencyMicros.getTotalCount();
+        }
+
+        double errorRate() {
+            return calls() == 0 ? 0 : (double) errors / calls();
+        }
+
+        double percentileMillis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    public void print(PrintStream out) {
+        double seconds = elapsed.toMillis() / 1000.0;
+        long calls = lines.stream().mapToLong(Line::calls).sum();
+        out.printf("mode=%s targetRps=%d concurrency=%d elapsed=%.1fs achievedRps=%.1f%n",
+                mode, targetRps, concurrency, seconds, calls / seconds);
+        out.printf("%-16s %9s %8s %9s %9s %9s %9s %9s%n",
+                "scenario", "calls", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Line line : lines) {
+            out.printf("%-16s %9d %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    line.scenario(), line.calls(), line.errorRate() * 100,
+                    line.percentileMillis(50), line.percentileMillis(90), line.percentileMillis(99),
+                    line.percentileMillis(99.9), line.latencyMicros().getMaxValue() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.service.MovieRestClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sustained-load run of {@link LoadHarness} against {@link MovieServiceStub}. Arguments are
+ * {@code key=value} pairs: {@code mode} (open|closed), {@code rps}, {@code concurrency},
+ * {@code duration} in seconds and {@code catalogue} size, e.g. {@code mode=open rps=500 duration=60}.
+ * Raise {@code rps} between runs until latency or errors climb to find the saturation point.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        LoadHarness.Mode mode = LoadHarness.Mode.valueOf(options.getOrDefault("mode", "open").toUpperCase());
+        int rps = Integer.parseInt(options.getOrDefault("rps", "200"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        int catalogue = Integer.parseInt(options.getOrDefault("catalogue", "1000"));
+
+        try (MovieServiceStub stub = new MovieServiceStub(catalogue)) {
+            LoadHarness harness = new LoadHarness(stub.bean(MovieRestClient.class), scenarios());
+            // short warm-up so JIT compilation does not dominate the first seconds
+            harness.run(LoadHarness.Mode.CLOSED, 0, 8, Duration.ofSeconds(5));
+            harness.run(mode, rps, concurrency, duration).print(System.out);
+        }
+    }
+
+    static List<LoadHarness.Scenario> scenarios() {
+        return List.of(
+                new LoadHarness.Scenario("getMovieById", 50,
+                        client -> client.getMovieById(ThreadLocalRandom.current().nextLong(1, 10_000))),
+                new LoadHarness.Scenario("getMovieByName", 15, client -> client.getMovieByName("Avengers")),
+                new LoadHarness.Scenario("getMovieByYear", 15, client -> client.getMovieByYear(2012)),
+                new LoadHarness.Scenario("createMovie", 10, client -> client.createMovie(
+                        new Movie("chor nikal ke bhaga", 88L, "chor", LocalDate.of(1997, 2, 13), 2023))),
+                new LoadHarness.Scenario("getAllMovies", 5, client -> client.getAllMovies()),
+                new LoadHarness.Scenario("faultyMovie", 5, client -> client.getMovieById(MovieServiceStub.FAULTY_MOVIE_ID)));
+    }
+}
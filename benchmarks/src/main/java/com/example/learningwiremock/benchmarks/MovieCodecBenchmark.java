@@ -0,0 +1,137 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.model.CompactMovie;
+import com.example.learningwiremock.model.Movie;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encode/decode of the movie catalogue in isolation, with the same Jackson setup the
+ * WebClient codecs use: {@link Movie} through its streaming deserializer and through reflective
+ * bean binding, and {@link CompactMovie}. {@code decodeStreamed} and {@code decodeAggregated} go
+ * through Spring's {@link Jackson2JsonDecoder} from 8KB buffers, as a response arrives, element by
+ * element and as one joined list. Retained bytes per movie of each model are printed at setup; run
+ * with {@code -prof gc} for the allocation per decode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+// JOL needs the flag to read the field offsets of CompactMovie, a record, on JDK 21
+@Fork(value = 1, jvmArgsAppend = "-Djol.magicFieldOffset=true")
+@State(Scope.Benchmark)
+public class MovieCodecBenchmark {
+    private static final TypeReference<List<Movie>> MOVIES = new TypeReference<>() {
+    };
+    private static final TypeReference<List<CompactMovie>> COMPACT_MOVIES = new TypeReference<>() {
+    };
+    /** Binds {@link Movie} by reflection, as before it had its own deserializer. */
+    private static final ObjectMapper REFLECTIVE = MovieFixtures.MAPPER.copy().addMixIn(Movie.class, ReflectiveMovie.class);
+    private static final ResolvableType MOVIE = ResolvableType.forClass(Movie.class);
+    private static final ResolvableType MOVIE_LIST = ResolvableType.forClassWithGenerics(List.class, Movie.class);
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private interface ReflectiveMovie {
+    }
+
+    @Param({"10000", "100000"})
+    public int catalogueSize;
+
+    private byte[] json;
+    private Jackson2JsonDecoder decoder;
+    private List<Movie> movies;
+    private List<CompactMovie> compactMovies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // no Spring context here, so nothing applies logging.level.root and the decoder logs every movie
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        json = MovieFixtures.catalogue(catalogueSize).getBytes(StandardCharsets.UTF_8);
+        movies = MovieFixtures.MAPPER.readValue(json, MOVIES);
+        compactMovies = MovieFixtures.MAPPER.readValue(json, COMPACT_MOVIES);
+        decoder = new Jackson2JsonDecoder(MovieFixtures.MAPPER);
+        decoder.setMaxInMemorySize(-1);
+        System.out.printf("%nretained bytes per movie: Movie %d, CompactMovie %d%n",
+                GraphLayout.parseInstance(movies).totalSize() / catalogueSize,
+                GraphLayout.parseInstance(compactMovies).totalSize() / catalogueSize);
+    }
+
+    @Benchmark
+    public List<Movie> decode() throws IOException {
+        return MovieFixtures.MAPPER.readValue(json, MOVIES);
+    }
+
+    @Benchmark
+    public List<Movie> decodeReflective() throws IOException {
+        return REFLECTIVE.readValue(json, MOVIES);
+    }
+
+    @Benchmark
+    public List<CompactMovie> decodeCompact() throws IOException {
+        return MovieFixtures.MAPPER.readValue(json, COMPACT_MOVIES);
+    }
+
+    @Benchmark
+    public List<Movie> decodeStreamed() {
+        return decoder.decode(chunks(), MOVIE, MediaType.APPLICATION_JSON, null)
+                .cast(Movie.class)
+                .collectList()
+                .block();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Movie> decodeAggregated() {
+        return (List<Movie>) decoder.decodeToMono(chunks(), MOVIE_LIST, MediaType.APPLICATION_JSON, null).block();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return MovieFixtures.MAPPER.writeValueAsBytes(movies);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() throws IOException {
+        return MovieFixtures.MAPPER.writeValueAsBytes(compactMovies);
+    }
+
+    /** The catalogue as the network would deliver it, wrapping {@link #json} without copying it. */
+    private Flux<DataBuffer> chunks() {
+        return Flux.range(0, (json.length + CHUNK_SIZE - 1) / CHUNK_SIZE)
+                .map(chunk -> {
+                    int offset = chunk * CHUNK_SIZE;
+                    ByteBuffer slice = ByteBuffer.wrap(json, offset, Math.min(CHUNK_SIZE, json.length - offset)).slice();
+                    return DefaultDataBufferFactory.sharedInstance.wrap(slice);
+                });
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Payloads derived from the WireMock fixtures of the client tests.
+ */
+public final class MovieFixtures {
+    public static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private MovieFixtures() {
+    }
+
+    public static String movie() {
+        return read("__files/movie.json");
+    }
+
+    /**
+     * {@code all-movies.json} repeated until it holds {@code size} movies, each with its own id.
+     */
+    public static String catalogue(int size) {
+        try {
+            ArrayNode base = (ArrayNode) MAPPER.readTree(read("__files/all-movies.json"));
+            ArrayNode scaled = MAPPER.createArrayNode();
+            for (int i = 0; i < size; i++) {
+                ObjectNode movie = base.get(i % base.size()).deepCopy();
+                movie.put("movie_id", i + 1);
+                scaled.add(movie);
+            }
+            return MAPPER.writeValueAsString(scaled);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static String read(String resource) {
+        try (InputStream in = MovieFixtures.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + resource);
+            }
+            return new String(in.readAllBytes());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
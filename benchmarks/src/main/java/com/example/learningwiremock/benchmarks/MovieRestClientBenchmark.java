@@ -0,0 +1,89 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.service.MovieRestClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the blocking client against an in-process WireMock server on localhost:
+ * ops/sec in throughput mode and latency percentiles in sample mode. Run with {@code -prof gc}
+ * for bytes allocated per operation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class MovieRestClientBenchmark {
+
+    /** A service with a 10-movie catalogue, for the benchmarks that never fetch it. */
+    @State(Scope.Benchmark)
+    public static class Client {
+        MovieServiceStub stub;
+        MovieRestClient movieRestClient;
+
+        @Setup(Level.Trial)
+        public void start() {
+            stub = new MovieServiceStub(catalogueSize());
+            movieRestClient = stub.bean(MovieRestClient.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            stub.close();
+        }
+
+        int catalogueSize() {
+            return 10;
+        }
+    }
+
+    /** A service whose catalogue size is a parameter, for the benchmarks that fetch it. */
+    @State(Scope.Benchmark)
+    public static class Catalogue extends Client {
+        @Param({"10000", "100000"})
+        public int catalogueSize;
+
+        @Override
+        int catalogueSize() {
+            return catalogueSize;
+        }
+    }
+
+    private static final Movie NEW_MOVIE = new Movie("chor nikal ke bhaga", 88L, "chor", LocalDate.of(1997, 2, 13), 2023);
+
+    @Benchmark
+    public Movie getMovieById(Client client) throws MovieNotFoundException {
+        return client.movieRestClient.getMovieById(1L);
+    }
+
+    @Benchmark
+    public List<Movie> getAllMovies(Catalogue client) throws MovieNotFoundException {
+        return client.movieRestClient.getAllMovies();
+    }
+
+    @Benchmark
+    public Movie createMovie(Client client) throws MovieNotCreated {
+        return client.movieRestClient.createMovie(NEW_MOVIE);
+    }
+}
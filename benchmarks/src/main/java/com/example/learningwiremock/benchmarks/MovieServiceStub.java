@@ -0,0 +1,97 @@
+package com.example.learningwiremock.benchmarks;
+
+import com.example.learningwiremock.LearningWiremockApplication;
+import com.example.learningwiremock.constants.MovieConstants;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * An embedded WireMock server on a random localhost port with the stubs of the client tests, plus
+ * the client's Spring context pointed at it. Year lookups answer after a random 50-250 ms delay and
+ * {@link #FAULTY_MOVIE_ID} fails with {@link Fault#EMPTY_RESPONSE}.
+ */
+public class MovieServiceStub implements AutoCloseable {
+    /** Id whose lookup fails with a connection closed before any response. */
+    public static final long FAULTY_MOVIE_ID = 666;
+    private static final String FAULTY_MOVIE_PATH = "/movieservice/v1/movie/" + FAULTY_MOVIE_ID;
+    private static final int SLOW_MIN_MILLIS = 50;
+    private static final int SLOW_MAX_MILLIS = 250;
+
+    private final WireMockServer server;
+    private final ConfigurableApplicationContext context;
+
+    public MovieServiceStub(int catalogueSize, String... properties) {
+        server = new WireMockServer(wireMockConfig()
+                .dynamicPort()
+                .containerThreads(64)
+                // delays are served from a scheduler instead of parking a Jetty thread each
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(8)
+                .disableRequestJournal()
+                .extensions(new ResponseTemplateTransformer(false)));
+        server.start();
+        stubMovieService(catalogueSize);
+
+        String[] all = new String[properties.length + 3];
+        all[0] = "moviesapp.baseUrl=http://localhost:" + server.port();
+        all[1] = "spring.main.banner-mode=off";
+        all[2] = "logging.level.root=WARN";
+        System.arraycopy(properties, 0, all, 3, properties.length);
+        context = new SpringApplicationBuilder(LearningWiremockApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all)
+                .run();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public WireMockServer server() {
+        return server;
+    }
+
+    private void stubMovieService(int catalogueSize) {
+        server.stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.movie())));
+        server.stubFor(get(MovieConstants.GET_ALL_MOVIES)
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.catalogue(catalogueSize))));
+        server.stubFor(post(MovieConstants.CREATE_MOVIE)
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.read("__files/createMovie-dynamic.json"))
+                        .withTransformers("response-template")));
+        server.stubFor(get(urlPathEqualTo(MovieConstants.Get_MOVIE_BY_NAME))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.read("__files/dynamic-Avengers.json"))
+                        .withTransformers("response-template")));
+        server.stubFor(get(urlPathEqualTo(MovieConstants.GET_MOVIE_BY_YEAR))
+                .willReturn(aResponse()
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(MovieFixtures.read("__files/movieByYear.json"))
+                        .withTransformers("response-template")
+                        .withUniformRandomDelay(SLOW_MIN_MILLIS, SLOW_MAX_MILLIS)));
+        server.stubFor(get(urlEqualTo(FAULTY_MOVIE_PATH))
+                .willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        server.stop();
+    }
+}
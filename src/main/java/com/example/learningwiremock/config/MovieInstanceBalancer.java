@@ -0,0 +1,310 @@
+package com.example.learningwiremock.config;
+
+import com.example.learningwiremock.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the calls of the movie {@code WebClient} over the instances listed under
+ * {@code moviesapp.load-balancer.instances}, by pointing each request at one of them; paths are
+ * left alone, so the {@code MovieConstants} paths work unchanged.
+ * <ul>
+ *     <li>{@code POWER_OF_TWO_CHOICES} picks two instances at random and sends the request to the
+ *     one with the lower (outstanding requests + 1) x latency, where latency is a moving average
+ *     that decays towards the median while the instance is idle so that a slow instance is
+ *     eventually tried again; an instance not yet measured counts as having the median latency</li>
+ *     <li>{@code LEAST_OUTSTANDING} sends it to the instance with the fewest requests in flight</li>
+ *     <li>{@code ROUND_ROBIN} takes the instances in turn</li>
+ * </ul>
+ * An instance is ejected for a while after {@code consecutive-failures} 5xx or I/O failures, or when
+ * its latency is {@code latency-outlier-factor} times the median, and each ejection lasts longer
+ * than the last. With {@code health-check-path} every instance is also probed and left out while
+ * its probe fails. No more than {@code max-ejected-percent} are ejected, and when every instance is
+ * out the request goes to any of them rather than failing.
+ * <p>
+ * Latency is measured to the response headers. Meters, tagged by instance:
+ * {@code movies.client.lb.outstanding}, {@code movies.client.lb.available} and the counter
+ * {@code movies.client.lb.ejections}.
+ */
+@Slf4j
+public class MovieInstanceBalancer implements ExchangeFilterFunction {
+    private final MoviesAppProperties.LoadBalancer properties;
+    private final List<Instance> instances;
+    private final AtomicInteger nextRoundRobin = new AtomicInteger();
+    private final WebClient probeClient;
+    private volatile Disposable healthChecks;
+    /** Median latency of the available instances with samples, kept up to date as it changes. */
+    private volatile double medianNanos;
+
+    /**
+     * @param probeClient client the health checks are sent with; it must not go through this
+     *                    balancer
+     */
+    public MovieInstanceBalancer(MoviesAppProperties.LoadBalancer properties, MeterRegistry meterRegistry,
+                                 WebClient probeClient) {
+        this.properties = properties;
+        this.probeClient = probeClient;
+        this.instances = properties.getInstances().stream()
+                .map(uri -> new Instance(uri, meterRegistry))
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return !instances.isEmpty();
+    }
+
+    /** Starts the health checks, when a {@code health-check-path} is configured. */
+    public void start() {
+        if (isEnabled() && properties.getHealthCheckPath() != null && healthChecks == null) {
+            healthChecks = startHealthChecks();
+        }
+    }
+
+    public void dispose() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            Instance instance = choose();
+            ClientRequest routed = ClientRequest.from(request).url(instance.resolve(request.url())).build();
+            instance.outstanding.incrementAndGet();
+            long start = System.nanoTime();
+            return next.exchange(routed)
+                    .doOnNext(response -> {
+                        if (response.statusCode().is5xxServerError()) {
+                            onFailure(instance);
+                        } else {
+                            onSuccess(instance, System.nanoTime() - start);
+                        }
+                    })
+                    .doOnError(ex -> {
+                        if (!(ex instanceof DeadlineExceededException)) {
+                            onFailure(instance);
+                        }
+                    })
+                    .doFinally(signal -> instance.outstanding.decrementAndGet());
+        });
+    }
+
+    private Instance choose() {
+        long now = System.nanoTime();
+        List<Instance> available = instances;
+        for (Instance instance : instances) {
+            if (!instance.isAvailable(now)) {
+                available = available(now);
+                break;
+            }
+        }
+        if (available.size() == 1) {
+            return available.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (properties.getStrategy()) {
+            case ROUND_ROBIN -> available.get(Math.floorMod(nextRoundRobin.getAndIncrement(), available.size()));
+            case LEAST_OUTSTANDING -> {
+                int offset = random.nextInt(available.size());
+                Instance least = null;
+                for (int i = 0; i < available.size(); i++) {
+                    Instance candidate = available.get((offset + i) % available.size());
+                    if (least == null || candidate.outstanding.get() < least.outstanding.get()) {
+                        least = candidate;
+                    }
+                }
+                yield least;
+            }
+            case POWER_OF_TWO_CHOICES -> {
+                int first = random.nextInt(available.size());
+                int second = random.nextInt(available.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Instance a = available.get(first);
+                Instance b = available.get(second);
+                double typical = medianNanos;
+                yield a.load(now, typical) <= b.load(now, typical) ? a : b;
+            }
+        };
+    }
+
+    /** The available instances, or all of them when none is. */
+    private List<Instance> available(long now) {
+        List<Instance> available = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (instance.isAvailable(now)) {
+                available.add(instance);
+            }
+        }
+        return available.isEmpty() ? instances : available;
+    }
+
+    private void onSuccess(Instance instance, long latencyNanos) {
+        instance.record(latencyNanos);
+        medianNanos = medianLatency(null);
+        double factor = properties.getLatencyOutlierFactor();
+        if (factor > 0 && instance.samples >= properties.getMinSamples()) {
+            double median = medianLatency(instance);
+            if (median > 0 && instance.ewmaNanos > factor * median) {
+                eject(instance, "latency " + Math.round(instance.ewmaNanos / 1e6) + "ms against a median of "
+                        + Math.round(median / 1e6) + "ms");
+            }
+        }
+    }
+
+    private void onFailure(Instance instance) {
+        if (instance.consecutiveFailures.incrementAndGet() >= properties.getConsecutiveFailures()) {
+            eject(instance, instance.consecutiveFailures.get() + " consecutive failures");
+        }
+    }
+
+    private synchronized void eject(Instance instance, String reason) {
+        long now = System.nanoTime();
+        if (!instance.isAvailable(now)) {
+            return;
+        }
+        long ejected = instances.stream().filter(other -> other.isEjected(now)).count();
+        if ((ejected + 1) * 100 > (long) properties.getMaxEjectedPercent() * instances.size()) {
+            return;
+        }
+        instance.ejections++;
+        long nanos = Math.min(properties.getEjectionTime().toNanos() * instance.ejections,
+                properties.getMaxEjectionTime().toNanos());
+        instance.ejectedUntilNanos = now + nanos;
+        instance.reset();
+        medianNanos = medianLatency(null);
+        instance.ejectionCounter.increment();
+        log.warn("Ejected {} for {}ms after {}", instance.uri, nanos / 1_000_000, reason);
+    }
+
+    private double medianLatency(Instance excluded) {
+        long now = System.nanoTime();
+        double[] latencies = new double[instances.size()];
+        int count = 0;
+        for (Instance instance : instances) {
+            if (instance != excluded && instance.isAvailable(now) && instance.samples > 0) {
+                latencies[count++] = instance.ewmaNanos;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(latencies, 0, count);
+        return latencies[count / 2];
+    }
+
+    private Disposable startHealthChecks() {
+        return Flux.interval(properties.getHealthCheckInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(instances)
+                        .flatMap(instance -> probeClient.get()
+                                .uri(instance.resolve(URI.create(properties.getHealthCheckPath())))
+                                .retrieve()
+                                .toBodilessEntity()
+                                .timeout(properties.getHealthCheckTimeout())
+                                .map(response -> true)
+                                .onErrorReturn(false)
+                                .doOnNext(healthy -> {
+                                    if (instance.healthy != healthy) {
+                                        log.warn("{} is {}", instance.uri, healthy ? "healthy again" : "failing its health check");
+                                        instance.healthy = healthy;
+                                        medianNanos = medianLatency(null);
+                                    }
+                                })), 1)
+                .subscribe();
+    }
+
+    private final class Instance {
+        private final URI uri;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final Counter ejectionCounter;
+        private volatile boolean healthy = true;
+        private volatile long ejectedUntilNanos;
+        private int ejections;
+        private volatile double ewmaNanos;
+        private volatile long lastSampleNanos = System.nanoTime();
+        private volatile int samples;
+
+        Instance(URI uri, MeterRegistry meterRegistry) {
+            this.uri = uri;
+            String tag = uri.getHost() + ":" + uri.getPort();
+            Gauge.builder("movies.client.lb.outstanding", outstanding, AtomicInteger::get)
+                    .description("Requests in flight to the instance")
+                    .tag("instance", tag)
+                    .register(meterRegistry);
+            Gauge.builder("movies.client.lb.available", this, instance -> instance.isAvailable(System.nanoTime()) ? 1 : 0)
+                    .description("Whether the instance is neither ejected nor failing its health check")
+                    .tag("instance", tag)
+                    .register(meterRegistry);
+            this.ejectionCounter = Counter.builder("movies.client.lb.ejections")
+                    .description("Times the instance was ejected for failures or latency")
+                    .tag("instance", tag)
+                    .register(meterRegistry);
+        }
+
+        URI resolve(URI url) {
+            return UriComponentsBuilder.fromUri(url)
+                    .scheme(uri.getScheme())
+                    .host(uri.getHost())
+                    .port(uri.getPort())
+                    .build(true)
+                    .toUri();
+        }
+
+        boolean isEjected(long now) {
+            return ejectedUntilNanos - now > 0;
+        }
+
+        boolean isAvailable(long now) {
+            return healthy && !isEjected(now);
+        }
+
+        /**
+         * (outstanding + 1) x latency. Without samples the instance is taken to have the
+         * {@code typical} latency, and a measured latency decays towards it while no samples
+         * arrive; when no latency is known at all, only the outstanding requests are compared.
+         */
+        double load(long now, double typical) {
+            double latency = typical;
+            if (samples > 0) {
+                double idle = (now - lastSampleNanos) / (double) properties.getLatencyDecay().toNanos();
+                latency += (ewmaNanos - typical) * Math.exp(-Math.max(0, idle));
+            }
+            return (outstanding.get() + 1) * Math.max(1, latency);
+        }
+
+        synchronized void record(long latencyNanos) {
+            consecutiveFailures.set(0);
+            ewmaNanos = samples == 0 ? latencyNanos : ewmaNanos + 0.3 * (latencyNanos - ewmaNanos);
+            lastSampleNanos = System.nanoTime();
+            samples++;
+        }
+
+        synchronized void reset() {
+            consecutiveFailures.set(0);
+            ewmaNanos = 0;
+            samples = 0;
+        }
+    }
+}
@@ -1,32 +1,224 @@
 package com.example.learningwiremock.config;
 
+import com.example.learningwiremock.exception.DeadlineExceededException;
+import com.example.learningwiremock.service.Deadline;
+import com.example.learningwiremock.service.RequestPhases;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
-import reactor.netty.tcp.TcpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 @Configuration
+@EnableConfigurationProperties(MoviesAppProperties.class)
 public class MoviesAppConfig {
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+    private static final Set<String> INFLATABLE = Set.of("gzip", "x-gzip", "deflate", "x-deflate");
+    private static final Set<Set<HttpProtocol>> SUPPORTED_PROTOCOLS = Set.of(Set.of(HttpProtocol.HTTP11), Set.of(HttpProtocol.H2C));
+
     @Value("${moviesapp.baseUrl}")
     private String baseUrl;
 
-    @Bean
-    public WebClient webClient() {
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesConnectionProvider(MoviesAppProperties properties) {
+        Set<HttpProtocol> protocols = properties.getHttp().getProtocols();
+        if (!SUPPORTED_PROTOCOLS.contains(protocols)) {
+            throw new IllegalStateException("moviesapp.http.protocols must be HTTP11 or H2C, not " + protocols);
+        }
+        MoviesAppProperties.Pool pool = properties.getPool();
+        ConnectionProvider.Builder builder = configure(ConnectionProvider.builder(pool.getName()), properties,
+                pool.getMaxConnections());
+        pool.getHostMaxConnections().forEach((hostAndPort, maxConnections) ->
+                builder.forRemoteHost(remoteHost(hostAndPort), spec -> configure(spec, properties, maxConnections)));
+        return builder.build();
+    }
+
+    /**
+     * Event loops of the movie client alone, so that disposing Reactor Netty's global resources
+     * (as another {@code WebClient} owner may do on shutdown) cannot take the movie client down.
+     */
+    @Bean(destroyMethod = "dispose")
+    public LoopResources moviesLoopResources(MoviesAppProperties properties) {
+        return LoopResources.create(properties.getPool().getName());
+    }
+
+    /**
+     * Health probes go out on the movie client's own pool and event loops, but not through the
+     * balancer they report to.
+     */
+    @Bean(initMethod = "start", destroyMethod = "dispose")
+    public MovieInstanceBalancer movieInstanceBalancer(ConnectionProvider moviesConnectionProvider,
+                                                       LoopResources moviesLoopResources,
+                                                       MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        HttpClient probeHttpClient = HttpClient.create(moviesConnectionProvider).runOn(moviesLoopResources);
+        WebClient probeClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(probeHttpClient)).build();
+        return new MovieInstanceBalancer(properties.getLoadBalancer(), meterRegistry, probeClient);
+    }
 
+    @Bean
+    public WebClient webClient(ConnectionProvider moviesConnectionProvider, LoopResources moviesLoopResources,
+                               MoviesAppProperties properties, MovieInstanceBalancer movieInstanceBalancer) {
+        MoviesAppProperties.Timeouts timeouts = properties.getTimeouts();
 
-        TcpClient tcpClient = TcpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+        HttpClient httpClient = HttpClient.create(moviesConnectionProvider)
+                .runOn(moviesLoopResources)
+                .protocol(properties.getHttp().getProtocols().toArray(HttpProtocol[]::new))
+                .metrics(properties.getPool().isMetrics(), MoviesAppConfig::uriTemplate)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeouts.getConnect().toMillis())
                 .doOnConnected(connection -> {
-                    connection.addHandlerLast(new ReadTimeoutHandler(5))
-                            .addHandlerLast(new WriteTimeoutHandler(5));
+                    connection.addHandlerLast(new ReadTimeoutHandler(timeouts.getRead().toMillis(), TimeUnit.MILLISECONDS))
+                            .addHandlerLast(new WriteTimeoutHandler(timeouts.getWrite().toMillis(), TimeUnit.MILLISECONDS));
                 });
+        if (properties.getTimings().isEnabled()) {
+            httpClient = recordPhases(httpClient);
+        }
+        String acceptEncoding = acceptEncoding(properties.getCompression());
+        if (!acceptEncoding.isEmpty()) {
+            httpClient = httpClient.compress(true)
+                    .headers(headers -> headers.set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding));
+        }
+        int maxInMemorySize = Math.toIntExact(properties.getCodec().getMaxInMemorySize().toBytes());
+
+        WebClient.Builder builder = WebClient.builder().clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize));
+        if (StringUtils.hasText(timeouts.getDeadlineHeader())) {
+            builder.filter(propagateDeadline(timeouts.getDeadlineHeader()));
+        }
+        if (properties.getTimings().isEnabled()) {
+            builder.filter(markBodyReceived());
+        }
+        if (movieInstanceBalancer.isEnabled()) {
+            builder.filter(movieInstanceBalancer);
+        }
+        return builder.baseUrl(baseUrl).build();
+    }
+
+    /**
+     * With HTTP/2 the pool hands out streams: a connection is shared until it carries
+     * {@code maxConcurrentStreams} requests, and {@code maxConnections} caps the connections.
+     */
+    private static <S extends ConnectionProvider.ConnectionPoolSpec<S>> S configure(S spec, MoviesAppProperties properties,
+                                                                                   int maxConnections) {
+        MoviesAppProperties.Pool pool = properties.getPool();
+        MoviesAppProperties.Http http = properties.getHttp();
+        if (http.isMultiplexed()) {
+            spec.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(maxConnections)
+                    .minConnections(Math.min(http.getMinConnections(), maxConnections))
+                    .maxConcurrentStreams(http.getMaxConcurrentStreams())
+                    .build());
+        } else {
+            spec.maxConnections(maxConnections);
+        }
+        spec.pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .metrics(pool.isMetrics());
+        if (!pool.getEvictInBackground().isZero()) {
+            spec.evictInBackground(pool.getEvictInBackground());
+        }
+        return spec;
+    }
+
+    /**
+     * Sends the time left before the {@link Deadline} in the request context as a header, re-read
+     * for every attempt so that a retry announces a smaller budget, and does not send a request
+     * whose deadline has already passed.
+     */
+    static ExchangeFilterFunction propagateDeadline(String header) {
+        return (request, next) -> Mono.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context).orElse(null);
+            if (deadline == null) {
+                return next.exchange(request);
+            }
+            if (deadline.isExpired()) {
+                return Mono.error(new DeadlineExceededException("Deadline exceeded before "
+                        + request.method() + " " + request.url().getPath() + " was sent"));
+            }
+            return next.exchange(ClientRequest.from(request)
+                    .header(header, Long.toString(deadline.remaining().toMillis()))
+                    .build());
+        });
+    }
+
+    /**
+     * Marks the {@link RequestPhases} of the attempt, when there is one in the request context, as
+     * Reactor Netty moves the exchange along.
+     */
+    static HttpClient recordPhases(HttpClient httpClient) {
+        return httpClient
+                .doOnRequest((request, connection) -> RequestPhases.from(request.currentContextView())
+                        .ifPresent(phases -> phases.connected(request.method() + " " + request.resourceUrl())))
+                .doAfterRequest((request, connection) -> RequestPhases.from(request.currentContextView())
+                        .ifPresent(RequestPhases::sent))
+                .doOnResponse((response, connection) -> RequestPhases.from(response.currentContextView())
+                        .ifPresent(RequestPhases::headersReceived));
+    }
+
+    /**
+     * Marks the last byte of the body from the side that reads it: Reactor Netty only reports the
+     * response as done once the body has been decoded, too late to tell receiving from decoding.
+     */
+    static ExchangeFilterFunction markBodyReceived() {
+        return (request, next) -> Mono.deferContextual(context -> RequestPhases.from(context)
+                .map(phases -> next.exchange(request).map(response -> response.mutate()
+                        .body(body -> body.doOnComplete(phases::bodyReceived))
+                        .build()))
+                .orElseGet(() -> next.exchange(request)));
+    }
+
+    /**
+     * The configured encodings that Netty's decompressor can inflate, as an {@code Accept-Encoding}
+     * value; empty when compression is off.
+     */
+    static String acceptEncoding(MoviesAppProperties.Compression compression) {
+        if (!compression.isEnabled()) {
+            return "";
+        }
+        return compression.getEncodings().stream()
+                .map(encoding -> encoding.trim().toLowerCase(Locale.ROOT))
+                .filter(encoding -> INFLATABLE.contains(encoding) || ("br".equals(encoding) && Brotli.isAvailable()))
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Collapses ids and query strings so that Reactor Netty's per-URI meters stay low-cardinality,
+     * e.g. {@code /movieservice/v1/movie/42} becomes {@code /movieservice/v1/movie/{id}}.
+     */
+    static String uriTemplate(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
 
-        return WebClient.builder().clientConnector(new ReactorClientHttpConnector(HttpClient.from(tcpClient)))
-                .baseUrl(baseUrl).build();
+    private static InetSocketAddress remoteHost(String hostAndPort) {
+        int separator = hostAndPort.lastIndexOf(':');
+        return InetSocketAddress.createUnresolved(hostAndPort.substring(0, separator),
+                Integer.parseInt(hostAndPort.substring(separator + 1)));
     }
 }
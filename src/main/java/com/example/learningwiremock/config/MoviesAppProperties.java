@@ -0,0 +1,424 @@
+package com.example.learningwiremock.config;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import reactor.netty.http.HttpProtocol;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tuning knobs for the movie service client, bound from {@code moviesapp.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "moviesapp")
+public class MoviesAppProperties {
+    private Streaming stream = new Streaming();
+    private Pool pool = new Pool();
+    private Http http = new Http();
+    private LoadBalancer loadBalancer = new LoadBalancer();
+    private Timeouts timeouts = new Timeouts();
+    private Compression compression = new Compression();
+    private Codec codec = new Codec();
+    private Cache cache = new Cache();
+    private ListCache listCache = new ListCache();
+    private Catalogue catalogue = new Catalogue();
+    private Sync sync = new Sync();
+    private Batch batch = new Batch();
+    private SingleFlight singleFlight = new SingleFlight();
+    private Ingest ingest = new Ingest();
+    private Resilience resilience = new Resilience();
+    private Hedging hedging = new Hedging();
+    private Concurrency concurrency = new Concurrency();
+    private RateLimit rateLimit = new RateLimit();
+    private Timings timings = new Timings();
+    private Blocking blocking = new Blocking();
+
+    @Data
+    public static class Streaming {
+        /** Movies requested ahead of a blocking stream consumer. */
+        private int prefetch = 64;
+    }
+
+    @Data
+    public static class Pool {
+        private String name = "movies";
+        /** Upper bound of open connections, applied per remote host. */
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        /** How often idle and expired connections are evicted in the background; zero disables it. */
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        /** Publish connection pool and HTTP client meters through Micrometer. */
+        private boolean metrics = true;
+        /** Overrides of {@code maxConnections} keyed by {@code host:port}. */
+        private Map<String, Integer> hostMaxConnections = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Http {
+        /**
+         * Protocols offered to the service: {@code HTTP11}, or {@code H2C} alone for cleartext
+         * HTTP/2 with prior knowledge. Other combinations are rejected at startup; with ALPN or an
+         * upgrade a connection may stay on HTTP/1.1, which the HTTP/2 pool would not cap at one
+         * request.
+         */
+        private Set<HttpProtocol> protocols = EnumSet.of(HttpProtocol.HTTP11);
+        /** HTTP/2 streams multiplexed over one connection before another connection is opened. */
+        private long maxConcurrentStreams = 100;
+        /** HTTP/2 connections kept open per host. */
+        private int minConnections = 1;
+
+        public boolean isMultiplexed() {
+            return protocols.contains(HttpProtocol.H2C);
+        }
+    }
+
+    @Data
+    public static class LoadBalancer {
+        /**
+         * Base URLs ({@code scheme://host:port}) of the service instances to spread calls over; when
+         * empty every call goes to {@code moviesapp.baseUrl}.
+         */
+        private List<URI> instances = new ArrayList<>();
+        private Strategy strategy = Strategy.POWER_OF_TWO_CHOICES;
+        /** Time over which the latency estimate of an idle instance fades, so that it is tried again. */
+        private Duration latencyDecay = Duration.ofSeconds(10);
+        /** 5xx answers or I/O failures in a row after which an instance is ejected. */
+        private int consecutiveFailures = 5;
+        /** Eject an instance whose latency exceeds this multiple of the others' median; zero disables it. */
+        private double latencyOutlierFactor = 3.0;
+        /** Latencies observed before an instance can be ejected as an outlier. */
+        private int minSamples = 20;
+        /** First ejection; every further ejection of the same instance lasts this much longer. */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        private int maxEjectedPercent = 50;
+        /** Path probed on every instance, a non-2xx answer taking it out of rotation; unset disables probes. */
+        private String healthCheckPath;
+        private Duration healthCheckInterval = Duration.ofSeconds(10);
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+        public enum Strategy {
+            POWER_OF_TWO_CHOICES,
+            LEAST_OUTSTANDING,
+            ROUND_ROBIN
+        }
+    }
+
+    @Data
+    public static class Timeouts {
+        private Duration connect = Duration.ofMillis(5000);
+        private Duration read = Duration.ofSeconds(5);
+        private Duration write = Duration.ofSeconds(5);
+        /**
+         * Budget of one call per endpoint, retries and backoff included, e.g.
+         * {@code moviesapp.timeouts.operations.get-movie-by-id=500ms}; endpoints not listed are only
+         * bounded by the caller's deadline.
+         */
+        private Map<MovieEndpoint, Duration> operations = new EnumMap<>(MovieEndpoint.class);
+        /** Request header telling the service how many milliseconds are left; blank to not send it. */
+        private String deadlineHeader = "X-Request-Timeout";
+    }
+
+    @Data
+    public static class Compression {
+        /** Ask the service for compressed responses and inflate them on the fly. */
+        private boolean enabled = false;
+        /**
+         * {@code Accept-Encoding} values in order of preference. {@code br} is only offered when
+         * Brotli4j is on the classpath; encodings the client cannot inflate are never offered.
+         */
+        private List<String> encodings = List.of("gzip", "deflate", "br");
+    }
+
+    @Data
+    public static class Codec {
+        /**
+         * Largest single response body, or element of a streamed list, buffered for decoding.
+         * Streamed lists are never joined into one buffer, so this only needs to fit the largest
+         * movie. They are not copy-free though: each element is buffered as Jackson tokens before
+         * it is bound, see {@code MovieCodecBenchmark.decodeStreamed}.
+         */
+        private DataSize maxInMemorySize = DataSize.ofKilobytes(256);
+    }
+
+    @Data
+    public static class Cache {
+        /** Serve getMovieById through an in-process read-through cache. */
+        private boolean enabled = false;
+        /** Approximate upper bound of the cached movies in bytes. */
+        private long maximumWeight = 16 * 1024 * 1024;
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class ListCache {
+        /** Cache getAllMovies and getMovieByYear answers and serve them stale while revalidating. */
+        private boolean enabled = false;
+        /** Age up to which an answer is served without revalidating it. */
+        private Duration softTtl = Duration.ofSeconds(30);
+        /** Age up to which an answer is still served, also while the service is failing. */
+        private Duration hardTtl = Duration.ofMinutes(10);
+        private long maximumSize = 1000;
+    }
+
+    @Data
+    public static class Catalogue {
+        /** Keep an indexed local copy of the catalogue and answer name and year lookups from it. */
+        private boolean enabled = false;
+        /** Age after which the local copy is no longer used and lookups go to the service again. */
+        private Duration maxStaleness = Duration.ofMinutes(5);
+        /** How often the local copy is reloaded in the background once it is in use. */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+        /**
+         * File the catalogue is saved to after every full load and read back from on start, so a
+         * restarted client can answer lookups before its first load; unset to keep it in memory only.
+         */
+        private Path snapshotPath;
+        /** Age beyond which a saved catalogue is not used on start. */
+        private Duration snapshotMaxAge = Duration.ofHours(24);
+    }
+
+    @Data
+    public static class Sync {
+        /**
+         * Revalidate {@code getAllMovies} with {@code If-None-Match}/{@code If-Modified-Since} and
+         * answer a 304 from the last catalogue received.
+         */
+        private boolean enabled = false;
+        /**
+         * Once a {@code Last-Modified} is known, ask only for the movies changed since then and merge
+         * them into the last catalogue. Turned off for good if the service rejects the request with 400.
+         */
+        private boolean delta = false;
+        /** Query parameter carrying the ISO-8601 instant of the last change seen. */
+        private String deltaParameter = "updatedSince";
+    }
+
+    @Data
+    public static class Batch {
+        /** Lookups of a batch that may be in flight at the same time. */
+        private int concurrency = 16;
+        /** Emit results in request order; when false they are emitted as they complete. */
+        private boolean preserveOrder = true;
+    }
+
+    @Data
+    public static class SingleFlight {
+        /** Let identical lookups in flight at the same time share one request and its result. */
+        private boolean enabled = true;
+        /** Endpoints whose lookups are shared; only GET endpoints are ever shared. */
+        private Set<MovieEndpoint> endpoints = EnumSet.of(MovieEndpoint.GET_MOVIE_BY_ID,
+                MovieEndpoint.GET_MOVIE_BY_NAME, MovieEndpoint.GET_MOVIE_BY_YEAR);
+    }
+
+    @Data
+    public static class Ingest {
+        /** Movies gathered into one batch of writes. */
+        private int batchSize = 100;
+        /** Longest a partial batch waits for more movies before it is written. */
+        private Duration batchWindow = Duration.ofMillis(50);
+        /** Writes of a batch that may be in flight at the same time. */
+        private int concurrency = 32;
+    }
+
+    @Data
+    public static class Resilience {
+        /** Retry, circuit-break and bulkhead every call. */
+        private boolean enabled = false;
+        private Policy defaults = Policy.defaults();
+        /** Per-endpoint overrides; fields left unset are taken from {@code defaults}. */
+        private Map<MovieEndpoint, Policy> endpoints = new EnumMap<>(MovieEndpoint.class);
+
+        public Policy policyFor(MovieEndpoint endpoint) {
+            Policy policy = endpoints.get(endpoint);
+            return policy == null ? defaults : policy.orElse(defaults);
+        }
+    }
+
+    /**
+     * Unset fields are null; {@link Resilience#policyFor(MovieEndpoint)} fills them in from the
+     * defaults.
+     */
+    @Data
+    public static class Policy {
+        /** Attempts including the first one; only idempotent endpoints are ever retried. */
+        private Integer maxAttempts;
+        private Duration initialBackoff;
+        private Duration maxBackoff;
+        /** Random spread applied to each backoff, between 0 and 1. */
+        private Double jitter;
+        private Float failureRateThreshold;
+        private Integer slidingWindowSize;
+        private Integer minimumNumberOfCalls;
+        private Duration waitDurationInOpenState;
+        private Integer permittedCallsInHalfOpenState;
+        /** Bulkhead size: calls to the endpoint allowed in flight at once. */
+        private Integer maxConcurrentCalls;
+        private Duration maxWaitForPermit;
+
+        static Policy defaults() {
+            Policy policy = new Policy();
+            policy.maxAttempts = 3;
+            policy.initialBackoff = Duration.ofMillis(100);
+            policy.maxBackoff = Duration.ofSeconds(2);
+            policy.jitter = 0.5;
+            policy.failureRateThreshold = 50f;
+            policy.slidingWindowSize = 50;
+            policy.minimumNumberOfCalls = 20;
+            policy.waitDurationInOpenState = Duration.ofSeconds(10);
+            policy.permittedCallsInHalfOpenState = 5;
+            policy.maxConcurrentCalls = 200;
+            policy.maxWaitForPermit = Duration.ZERO;
+            return policy;
+        }
+
+        Policy orElse(Policy fallback) {
+            Policy policy = new Policy();
+            policy.maxAttempts = maxAttempts != null ? maxAttempts : fallback.maxAttempts;
+            policy.initialBackoff = initialBackoff != null ? initialBackoff : fallback.initialBackoff;
+            policy.maxBackoff = maxBackoff != null ? maxBackoff : fallback.maxBackoff;
+            policy.jitter = jitter != null ? jitter : fallback.jitter;
+            policy.failureRateThreshold = failureRateThreshold != null ? failureRateThreshold : fallback.failureRateThreshold;
+            policy.slidingWindowSize = slidingWindowSize != null ? slidingWindowSize : fallback.slidingWindowSize;
+            policy.minimumNumberOfCalls = minimumNumberOfCalls != null ? minimumNumberOfCalls : fallback.minimumNumberOfCalls;
+            policy.waitDurationInOpenState = waitDurationInOpenState != null ? waitDurationInOpenState : fallback.waitDurationInOpenState;
+            policy.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState != null
+                    ? permittedCallsInHalfOpenState : fallback.permittedCallsInHalfOpenState;
+            policy.maxConcurrentCalls = maxConcurrentCalls != null ? maxConcurrentCalls : fallback.maxConcurrentCalls;
+            policy.maxWaitForPermit = maxWaitForPermit != null ? maxWaitForPermit : fallback.maxWaitForPermit;
+            return policy;
+        }
+    }
+
+    @Data
+    public static class Hedging {
+        private boolean enabled = false;
+        /** Endpoints that may be hedged; non-idempotent ones are ignored. */
+        private Set<MovieEndpoint> endpoints = EnumSet.of(MovieEndpoint.GET_MOVIE_BY_ID,
+                MovieEndpoint.GET_MOVIE_BY_NAME, MovieEndpoint.GET_MOVIE_BY_YEAR);
+        /** Latency percentile after which the hedge is sent. */
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        /** Upper bound of the hedge delay, also used until {@code min-samples} latencies are known. */
+        private Duration maxDelay = Duration.ofSeconds(1);
+        private int sampleSize = 1024;
+        private int minSamples = 50;
+        /** Hedges allowed per call made, e.g. 0.1 caps the extra load at 10%. */
+        private double budgetRatio = 0.1;
+        private int budgetBurst = 10;
+    }
+
+    @Data
+    public static class Concurrency {
+        /** Limit the requests in flight per endpoint to a value adapted from the observed round trips. */
+        private boolean enabled = false;
+        private Algorithm algorithm = Algorithm.GRADIENT;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 500;
+        /** Weight of each new estimate in the limit, between 0 and 1. */
+        private double smoothing = 0.2;
+        /** Factor applied to the limit when a request times out, cannot connect or is answered with 5xx or 429. */
+        private double backoffRatio = 0.9;
+        /** Gradient: tolerated ratio of a round trip to the long-term average before the limit shrinks. */
+        private double rttTolerance = 1.5;
+        /** Gradient: round trips over which the long-term average is taken. */
+        private int longWindow = 600;
+        /** Vegas: round trips after which the no-load round trip is measured afresh. */
+        private int probeInterval = 1000;
+        /** Callers that may wait for a permit; zero fails excess callers straight away. */
+        private int maxQueue = 50;
+        private Duration maxWait = Duration.ofMillis(50);
+
+        public enum Algorithm {
+            /** Shrinks as round trips grow beyond their long-term average, grows by sqrt(limit) otherwise. */
+            GRADIENT,
+            /** Estimates the queue from the no-load round trip and keeps it between log10 bounds. */
+            VEGAS,
+            /** Grows by one per round trip and only shrinks on drops. */
+            AIMD
+        }
+    }
+
+    @Data
+    public static class RateLimit {
+        /** Pace calls per endpoint with a token bucket, and map and honour 429 answers. */
+        private boolean enabled = false;
+        private Bucket defaults = Bucket.defaults();
+        /** Per-endpoint buckets; fields left unset are taken from {@code defaults}. */
+        private Map<MovieEndpoint, Bucket> endpoints = new EnumMap<>(MovieEndpoint.class);
+        /** Longest a call may wait for a token before it is rejected; zero rejects instead of waiting. */
+        private Duration maxWait = Duration.ofMillis(200);
+        /** Callers that may wait for a token at the same time. */
+        private int maxQueue = 100;
+        /** Factor applied to the rate on every 429. */
+        private double backoffRatio = 0.5;
+        /** Lowest fraction of the configured rate that 429s can push the rate down to. */
+        private double minRateRatio = 0.05;
+        /** Fraction of the configured rate regained every second after a 429. */
+        private double recoveryPerSecond = 0.1;
+        /** Upper bound of a pause asked for with {@code Retry-After}. */
+        private Duration maxRetryAfter = Duration.ofMinutes(1);
+
+        public Bucket bucketFor(MovieEndpoint endpoint) {
+            Bucket bucket = endpoints.get(endpoint);
+            return bucket == null ? defaults : bucket.orElse(defaults);
+        }
+    }
+
+    /**
+     * Unset fields are null; {@link RateLimit#bucketFor(MovieEndpoint)} fills them in from the
+     * defaults.
+     */
+    @Data
+    public static class Bucket {
+        /** Calls per second. */
+        private Double rate;
+        /** Calls that may be made back to back after a quiet period. */
+        private Integer burst;
+
+        static Bucket defaults() {
+            Bucket bucket = new Bucket();
+            bucket.rate = 50.0;
+            bucket.burst = 100;
+            return bucket;
+        }
+
+        Bucket orElse(Bucket fallback) {
+            Bucket bucket = new Bucket();
+            bucket.rate = rate != null ? rate : fallback.rate;
+            bucket.burst = burst != null ? burst : fallback.burst;
+            return bucket;
+        }
+    }
+
+    @Data
+    public static class Timings {
+        /** Record how long every attempt spends in each phase of the exchange. */
+        private boolean enabled = false;
+        /** Attempts at least this slow are logged with their phase breakdown; zero disables the log. */
+        private Duration slowRequestThreshold = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Blocking {
+        /** Run {@code MovieRestClient} async calls on a virtual thread per task instead of a platform pool. */
+        private boolean virtualThreads = false;
+        /** Size of the platform thread pool used when virtual threads are off. */
+        private int platformThreads = 200;
+    }
+}
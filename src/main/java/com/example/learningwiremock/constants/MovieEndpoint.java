@@ -0,0 +1,39 @@
+package com.example.learningwiremock.constants;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * The calls {@link com.example.learningwiremock.service.MovieRestClient} makes, used to key
+ * per-endpoint client policies such as {@code moviesapp.resilience.endpoints.get-movie-by-id.*}.
+ */
+public enum MovieEndpoint {
+    GET_ALL_MOVIES(HttpMethod.GET, MovieConstants.GET_ALL_MOVIES),
+    GET_MOVIE_BY_ID(HttpMethod.GET, MovieConstants.GET_MOVIE_BY_ID),
+    GET_MOVIE_BY_NAME(HttpMethod.GET, MovieConstants.Get_MOVIE_BY_NAME),
+    GET_MOVIE_BY_YEAR(HttpMethod.GET, MovieConstants.GET_MOVIE_BY_YEAR),
+    CREATE_MOVIE(HttpMethod.POST, MovieConstants.CREATE_MOVIE),
+    UPDATE_MOVIE(HttpMethod.PUT, MovieConstants.UPDATE_MOVIE),
+    DELETE_MOVIE(HttpMethod.DELETE, MovieConstants.GET_MOVIE_BY_ID),
+    DELETE_MOVIE_BY_NAME(HttpMethod.DELETE, MovieConstants.Get_MOVIE_BY_NAME);
+
+    private final HttpMethod method;
+    private final String path;
+
+    MovieEndpoint(HttpMethod method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /** Whether repeating the call has the same effect as making it once, i.e. it is safe to retry. */
+    public boolean isIdempotent() {
+        return !HttpMethod.POST.equals(method);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.learningwiremock.exception;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+
+/**
+ * A call was refused because the endpoint already had as many requests in flight as its adaptive
+ * concurrency limit allows and no permit became free in time.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    public ConcurrencyLimitExceededException(MovieEndpoint endpoint, int limit) {
+        super("Concurrency limit of " + limit + " reached for " + endpoint);
+    }
+}
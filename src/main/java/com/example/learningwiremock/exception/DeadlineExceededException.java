@@ -0,0 +1,11 @@
+package com.example.learningwiremock.exception;
+
+/**
+ * A call was abandoned because the caller's deadline, or the endpoint's operation timeout, passed
+ * before it completed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -7,5 +7,8 @@ public class MovieNotCreated extends Throwable {
         super(ex);
     }
 
+    public MovieNotCreated(Throwable cause) {
+        super(cause);
+    }
 
 }
@@ -0,0 +1,28 @@
+package com.example.learningwiremock.exception;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+
+import java.time.Duration;
+
+/**
+ * A call was not made, or was refused with 429, because it would exceed the movie service's rate
+ * limit. {@link #getRetryAfter()} says when trying again makes sense, zero when unknown.
+ */
+public class RateLimitedException extends RuntimeException {
+    private final MovieEndpoint endpoint;
+    private final Duration retryAfter;
+
+    public RateLimitedException(MovieEndpoint endpoint, Duration retryAfter, String message, Throwable cause) {
+        super(message, cause);
+        this.endpoint = endpoint;
+        this.retryAfter = retryAfter;
+    }
+
+    public MovieEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.learningwiremock.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide dictionary of cast strings. Once it holds {@link #MAX_ENTRIES} entries new casts are
+ * no longer shared, which keeps a stream of unique values from growing it without bound.
+ */
+final class CastDictionary {
+    static final int MAX_ENTRIES = 1 << 16;
+    private static final Map<String, String> ENTRIES = new ConcurrentHashMap<>();
+
+    private CastDictionary() {
+    }
+
+    static String intern(String cast) {
+        if (cast == null) {
+            return null;
+        }
+        String shared = ENTRIES.get(cast);
+        if (shared != null) {
+            return shared;
+        }
+        if (ENTRIES.size() >= MAX_ENTRIES) {
+            return cast;
+        }
+        shared = ENTRIES.putIfAbsent(cast, cast);
+        return shared == null ? cast : shared;
+    }
+}
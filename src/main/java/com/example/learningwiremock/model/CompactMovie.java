@@ -0,0 +1,43 @@
+package com.example.learningwiremock.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable, allocation-light form of {@link Movie} for bulk reads. Id and year are primitives and
+ * the release date is kept as an epoch day; absent values are {@link #NO_ID}, {@link #NO_YEAR}
+ * and {@link #NO_RELEASE_DATE}. Equal cast strings are shared between movies through a bounded
+ * dictionary, so a catalogue holds each distinct cast once.
+ * <p>
+ * Read and written by hand-written streaming (de)serializers rather than reflective binding.
+ */
+@JsonDeserialize(using = MovieJson.CompactMovieDeserializer.class)
+@JsonSerialize(using = MovieJson.CompactMovieSerializer.class)
+public record CompactMovie(long movieId, String name, int year, String cast, int releaseEpochDay) {
+    public static final long NO_ID = Long.MIN_VALUE;
+    public static final int NO_YEAR = Integer.MIN_VALUE;
+    public static final int NO_RELEASE_DATE = Integer.MIN_VALUE;
+
+    public CompactMovie {
+        cast = CastDictionary.intern(cast);
+    }
+
+    public static CompactMovie of(Movie movie) {
+        return new CompactMovie(
+                movie.getMovie_id() == null ? NO_ID : movie.getMovie_id(),
+                movie.getName(),
+                movie.getYear() == null ? NO_YEAR : movie.getYear(),
+                movie.getCast(),
+                movie.getRelease_date() == null ? NO_RELEASE_DATE : (int) movie.getRelease_date().toEpochDay());
+    }
+
+    public LocalDate releaseDate() {
+        return releaseEpochDay == NO_RELEASE_DATE ? null : LocalDate.ofEpochDay(releaseEpochDay);
+    }
+
+    public Movie toMovie() {
+        return new Movie(cast, movieId == NO_ID ? null : movieId, name, releaseDate(), year == NO_YEAR ? null : year);
+    }
+}
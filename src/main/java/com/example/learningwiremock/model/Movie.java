@@ -1,5 +1,6 @@
 package com.example.learningwiremock.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,10 +8,15 @@ import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
+/**
+ * Read with {@link MovieJson.MovieDeserializer}, a streaming deserializer, instead of reflective
+ * binding; see {@link CompactMovie} for a leaner form of bulk reads.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
+@JsonDeserialize(using = MovieJson.MovieDeserializer.class)
 public class Movie {
     private String cast;
     private Long movie_id;
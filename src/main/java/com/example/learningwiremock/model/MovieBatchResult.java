@@ -0,0 +1,35 @@
+package com.example.learningwiremock.model;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partial result of a batch lookup. Both maps iterate in the order the lookups completed, which is
+ * the order of the requested ids unless ordering was relaxed.
+ */
+@Getter
+@ToString
+public class MovieBatchResult {
+    private final Map<Long, Movie> movies = new LinkedHashMap<>();
+    private final Map<Long, Throwable> errors = new LinkedHashMap<>();
+
+    public static MovieBatchResult of(List<MovieLookup> lookups) {
+        MovieBatchResult result = new MovieBatchResult();
+        for (MovieLookup lookup : lookups) {
+            if (lookup.isFound()) {
+                result.movies.put(lookup.getMovieId(), lookup.getMovie());
+            } else {
+                result.errors.put(lookup.getMovieId(), lookup.getError());
+            }
+        }
+        return result;
+    }
+
+    public boolean isComplete() {
+        return errors.isEmpty();
+    }
+}
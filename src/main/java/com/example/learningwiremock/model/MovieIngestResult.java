@@ -0,0 +1,50 @@
+package com.example.learningwiremock.model;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a bulk ingest: the movies written, in input order, and the failures keyed by the
+ * position of the movie in the input.
+ */
+@Getter
+@ToString
+public class MovieIngestResult {
+    private final List<Movie> written = new ArrayList<>();
+    private final Map<Long, MovieNotCreated> failures = new LinkedHashMap<>();
+
+    public static MovieIngestResult of(List<MovieWriteResult> results) {
+        MovieIngestResult result = new MovieIngestResult();
+        for (MovieWriteResult write : results) {
+            if (write.isWritten()) {
+                result.written.add(write.getWritten());
+            } else {
+                result.failures.put(write.getIndex(), write.getError());
+            }
+        }
+        return result;
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Throws the first failure, with the others attached as suppressed exceptions.
+     */
+    public void throwIfFailed() throws MovieNotCreated {
+        if (failures.isEmpty()) {
+            return;
+        }
+        List<MovieNotCreated> errors = new ArrayList<>(failures.values());
+        MovieNotCreated first = errors.get(0);
+        errors.subList(1, errors.size()).forEach(first::addSuppressed);
+        throw first;
+    }
+}
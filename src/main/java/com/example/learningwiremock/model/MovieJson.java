@@ -0,0 +1,266 @@
+package com.example.learningwiremock.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Streaming JSON (de)serializers of the movie models. Fields are read straight off the parser's
+ * tokens, without reflection or intermediate trees; unknown fields are skipped. Release dates in
+ * the service's {@code yyyy-MM-dd} form are parsed from the parser's character buffer, any other
+ * representation is handed to the context's {@link LocalDate} deserializer. Values that do not fit
+ * their field are reported through the context, so they fail as a {@code JsonMappingException}
+ * just as with reflective binding, rather than being coerced.
+ */
+final class MovieJson {
+    private static final String MOVIE_ID = "movie_id";
+    private static final String NAME = "name";
+    private static final String YEAR = "year";
+    private static final String CAST = "cast";
+    private static final String RELEASE_DATE = "release_date";
+
+    private MovieJson() {
+    }
+
+    static class MovieDeserializer extends StdDeserializer<Movie> {
+
+        MovieDeserializer() {
+            super(Movie.class);
+        }
+
+        @Override
+        public Movie deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Movie movie = new Movie();
+            for (String field = firstField(p, ctxt, Movie.class); field != null; field = p.nextFieldName()) {
+                if (p.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case MOVIE_ID -> movie.setMovie_id(longValue(p, ctxt));
+                    case NAME -> movie.setName(text(p, ctxt));
+                    case YEAR -> movie.setYear(intValue(p, ctxt));
+                    case CAST -> movie.setCast(text(p, ctxt));
+                    case RELEASE_DATE -> {
+                        int epochDay = epochDay(p, ctxt);
+                        movie.setRelease_date(epochDay == CompactMovie.NO_RELEASE_DATE ? null : LocalDate.ofEpochDay(epochDay));
+                    }
+                    default -> p.skipChildren();
+                }
+            }
+            return movie;
+        }
+    }
+
+    static class CompactMovieDeserializer extends StdDeserializer<CompactMovie> {
+
+        CompactMovieDeserializer() {
+            super(CompactMovie.class);
+        }
+
+        @Override
+        public CompactMovie deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long movieId = CompactMovie.NO_ID;
+            String name = null;
+            int year = CompactMovie.NO_YEAR;
+            String cast = null;
+            int releaseEpochDay = CompactMovie.NO_RELEASE_DATE;
+            for (String field = firstField(p, ctxt, CompactMovie.class); field != null; field = p.nextFieldName()) {
+                if (p.nextToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case MOVIE_ID -> {
+                        Long id = longValue(p, ctxt);
+                        movieId = id == null ? CompactMovie.NO_ID : id;
+                    }
+                    case NAME -> name = text(p, ctxt);
+                    case YEAR -> {
+                        Integer value = intValue(p, ctxt);
+                        year = value == null ? CompactMovie.NO_YEAR : value;
+                    }
+                    case CAST -> cast = text(p, ctxt);
+                    case RELEASE_DATE -> releaseEpochDay = epochDay(p, ctxt);
+                    default -> p.skipChildren();
+                }
+            }
+            return new CompactMovie(movieId, name, year, cast, releaseEpochDay);
+        }
+    }
+
+    static class CompactMovieSerializer extends StdSerializer<CompactMovie> {
+
+        CompactMovieSerializer() {
+            super(CompactMovie.class);
+        }
+
+        @Override
+        public void serialize(CompactMovie movie, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(movie);
+            if (movie.movieId() != CompactMovie.NO_ID) {
+                gen.writeNumberField(MOVIE_ID, movie.movieId());
+            }
+            if (movie.name() != null) {
+                gen.writeStringField(NAME, movie.name());
+            }
+            if (movie.year() != CompactMovie.NO_YEAR) {
+                gen.writeNumberField(YEAR, movie.year());
+            }
+            if (movie.cast() != null) {
+                gen.writeStringField(CAST, movie.cast());
+            }
+            if (movie.releaseEpochDay() != CompactMovie.NO_RELEASE_DATE) {
+                gen.writeStringField(RELEASE_DATE, movie.releaseDate().toString());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * Name of the first field, whether the parser is still on the object's start or, as happens
+     * with buffered input, already on its first field name.
+     */
+    private static String firstField(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (p.isExpectedStartObjectToken()) {
+            return p.nextFieldName();
+        }
+        if (p.hasToken(JsonToken.FIELD_NAME)) {
+            return p.currentName();
+        }
+        if (p.hasToken(JsonToken.END_OBJECT)) {
+            return null;
+        }
+        ctxt.handleUnexpectedToken(type, p);
+        return null;
+    }
+
+    /**
+     * A blank string leaves an id, year or release date unset, as Jackson's default coercion of
+     * empty strings does for the reflective binding of {@link Movie}; names and casts keep it.
+     */
+    private static boolean isBlank(JsonParser p) throws IOException {
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            return false;
+        }
+        char[] text = p.getTextCharacters();
+        int end = p.getTextOffset() + p.getTextLength();
+        for (int i = p.getTextOffset(); i < end; i++) {
+            if (!Character.isWhitespace(text[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An integer token, or a string holding one as Jackson's default coercion accepts; fractions,
+     * values out of range and other shapes are reported through the context.
+     */
+    private static Long longValue(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+            return p.getNumberType() == JsonParser.NumberType.BIG_INTEGER
+                    ? (Long) ctxt.handleWeirdNumberValue(Long.class, p.getNumberValue(), "out of range of long")
+                    : p.getLongValue();
+        }
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            return unexpected(p, ctxt, Long.class);
+        }
+        if (isBlank(p)) {
+            return null;
+        }
+        String text = p.getText().trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException ex) {
+            return (Long) ctxt.handleWeirdStringValue(Long.class, text, "not a valid long");
+        }
+    }
+
+    private static Integer intValue(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+            return p.getNumberType() == JsonParser.NumberType.INT
+                    ? p.getIntValue()
+                    : (Integer) ctxt.handleWeirdNumberValue(Integer.class, p.getNumberValue(), "out of range of int");
+        }
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            return unexpected(p, ctxt, Integer.class);
+        }
+        if (isBlank(p)) {
+            return null;
+        }
+        String text = p.getText().trim();
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            return (Integer) ctxt.handleWeirdStringValue(Integer.class, text, "not a valid int");
+        }
+    }
+
+    /** Any scalar as its text, as the reflective binding of a {@code String} property takes it. */
+    private static String text(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return p.currentToken().isScalarValue() ? p.getValueAsString() : unexpected(p, ctxt, String.class);
+    }
+
+    /**
+     * Reports a value of the wrong shape; the context fails with a {@code MismatchedInputException}
+     * unless a problem handler supplies a value, for which the value's children are skipped first.
+     */
+    private static <T> T unexpected(JsonParser p, DeserializationContext ctxt, Class<T> type) throws IOException {
+        JsonToken token = p.currentToken();
+        p.skipChildren();
+        return type.cast(ctxt.handleUnexpectedToken(type, token, p, null));
+    }
+
+    private static int epochDay(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (isBlank(p)) {
+            return CompactMovie.NO_RELEASE_DATE;
+        }
+        if (p.hasToken(JsonToken.VALUE_STRING) && p.getTextLength() == 10) {
+            char[] text = p.getTextCharacters();
+            int offset = p.getTextOffset();
+            if (text[offset + 4] == '-' && text[offset + 7] == '-') {
+                int year = digits(text, offset, 4);
+                int month = digits(text, offset + 5, 2);
+                int day = digits(text, offset + 8, 2);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    try {
+                        return epochDay(LocalDate.of(year, month, day), ctxt);
+                    } catch (DateTimeException ex) {
+                        return epochDay((LocalDate) ctxt.handleWeirdStringValue(LocalDate.class, p.getText(), ex.getMessage()), ctxt);
+                    }
+                }
+            }
+        }
+        return epochDay(ctxt.readValue(p, LocalDate.class), ctxt);
+    }
+
+    private static int epochDay(LocalDate date, DeserializationContext ctxt) throws IOException {
+        if (date == null) {
+            return CompactMovie.NO_RELEASE_DATE;
+        }
+        long epochDay = date.toEpochDay();
+        if (epochDay <= CompactMovie.NO_RELEASE_DATE || epochDay > Integer.MAX_VALUE) {
+            return ctxt.reportInputMismatch(LocalDate.class, "Release date %s is out of range", date);
+        }
+        return (int) epochDay;
+    }
+
+    private static int digits(char[] text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
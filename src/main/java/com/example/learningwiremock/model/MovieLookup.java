@@ -0,0 +1,30 @@
+package com.example.learningwiremock.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of looking up one id as part of a batch: either the movie or the error it failed with.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MovieLookup {
+    private final Long movieId;
+    private final Movie movie;
+    private final Throwable error;
+
+    public static MovieLookup found(Long movieId, Movie movie) {
+        return new MovieLookup(movieId, movie, null);
+    }
+
+    public static MovieLookup failed(Long movieId, Throwable error) {
+        return new MovieLookup(movieId, null, error);
+    }
+
+    public boolean isFound() {
+        return error == null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.learningwiremock.model;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of writing one movie as part of a bulk ingest: the movie as stored by the service, or
+ * the error the write failed with. {@code index} is the movie's position in the ingested input.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MovieWriteResult {
+    private final long index;
+    private final Movie submitted;
+    private final Movie written;
+    private final MovieNotCreated error;
+
+    public static MovieWriteResult written(long index, Movie submitted, Movie written) {
+        return new MovieWriteResult(index, submitted, written, null);
+    }
+
+    public static MovieWriteResult failed(long index, Movie submitted, MovieNotCreated error) {
+        return new MovieWriteResult(index, submitted, null, error);
+    }
+
+    public boolean isWritten() {
+        return error == null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+
+/**
+ * Concurrency limit estimated from round-trip samples, in the manner of Netflix's
+ * concurrency-limits. Gradient and Vegas compare each round trip with a baseline (the long-term
+ * average or the no-load minimum) and move the limit towards what the service absorbs without
+ * queueing; every algorithm backs off multiplicatively on drops. Samples taken while fewer than
+ * half the permits were in use do not raise the limit, since the caller rather than the service
+ * was the bottleneck.
+ */
+class AdaptiveLimit {
+    private final MoviesAppProperties.Concurrency properties;
+    private double limit;
+    private double longRttNanos;
+    private long noLoadRttNanos = Long.MAX_VALUE;
+    private int samplesSinceProbe;
+
+    AdaptiveLimit(MoviesAppProperties.Concurrency properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (dropped) {
+            limit = clamp(limit * properties.getBackoffRatio());
+            return;
+        }
+        double estimate = switch (properties.getAlgorithm()) {
+            case GRADIENT -> gradient(rttNanos);
+            case VEGAS -> vegas(rttNanos);
+            case AIMD -> limit + 1;
+        };
+        if (inflight * 2 < limit && estimate > limit) {
+            return;
+        }
+        limit = properties.getAlgorithm() == MoviesAppProperties.Concurrency.Algorithm.AIMD
+                ? clamp(estimate)
+                : clamp((1 - properties.getSmoothing()) * limit + properties.getSmoothing() * estimate);
+    }
+
+    private double gradient(long rttNanos) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / properties.getLongWindow();
+        }
+        // once latency has recovered, let the long-term average follow quickly instead of
+        // holding the limit up for a whole window
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / rttNanos));
+        return limit * gradient + Math.sqrt(limit);
+    }
+
+    private double vegas(long rttNanos) {
+        if (++samplesSinceProbe >= properties.getProbeInterval()) {
+            samplesSinceProbe = 0;
+            noLoadRttNanos = rttNanos;
+        } else {
+            noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+        }
+        double queue = Math.ceil(limit * (1 - (double) noLoadRttNanos / rttNanos));
+        double log = Math.max(1, Math.log10(limit));
+        if (queue <= log) {
+            return limit + 6 * log;
+        }
+        if (queue < 3 * log) {
+            return limit + log;
+        }
+        if (queue > 6 * log) {
+            return limit - log;
+        }
+        return limit;
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+}
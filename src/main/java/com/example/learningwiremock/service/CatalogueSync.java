@@ -0,0 +1,152 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.model.Movie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Validators and body of the last full catalogue received, used to turn {@code getAllMovies} into
+ * a conditional request. A 304 is answered from the stored catalogue without decoding anything; in
+ * delta mode a 200 carries only the movies changed since {@code Last-Modified}, which are merged
+ * by id into the stored catalogue. Deltas cannot express deletions, so a movie deleted by another
+ * client stays until the next full response.
+ */
+@Slf4j
+class CatalogueSync {
+    private final MoviesAppProperties.Sync properties;
+    private final AtomicReference<Snapshot> last = new AtomicReference<>();
+    private volatile boolean deltaSupported;
+    private final Counter full;
+    private final Counter notModified;
+    private final Counter delta;
+
+    record Snapshot(List<Movie> movies, String etag, long lastModified) {
+    }
+
+    CatalogueSync(MoviesAppProperties.Sync properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.deltaSupported = properties.isDelta();
+        this.full = counter(meterRegistry, "full");
+        this.notModified = counter(meterRegistry, "not_modified");
+        this.delta = counter(meterRegistry, "delta");
+    }
+
+    Snapshot last() {
+        return last.get();
+    }
+
+    /**
+     * The {@code updatedSince} value for a delta request after {@code snapshot}, or null when a
+     * full request has to be made.
+     */
+    String deltaSince(Snapshot snapshot) {
+        return deltaSupported && snapshot != null && snapshot.lastModified() >= 0
+                ? Instant.ofEpochMilli(snapshot.lastModified()).toString()
+                : null;
+    }
+
+    String deltaParameter() {
+        return properties.getDeltaParameter();
+    }
+
+    void deltaRejected() {
+        deltaSupported = false;
+    }
+
+    void addValidators(HttpHeaders headers, Snapshot snapshot, boolean isDelta) {
+        if (snapshot == null) {
+            return;
+        }
+        // the entity tag belongs to the full catalogue, not to a delta of it
+        if (snapshot.etag() != null && !isDelta) {
+            headers.setIfNoneMatch(snapshot.etag());
+        }
+        if (snapshot.lastModified() >= 0) {
+            headers.setIfModifiedSince(snapshot.lastModified());
+        }
+    }
+
+    /**
+     * The catalogue after {@code response}: the stored one on 304, the decoded body otherwise, or
+     * the response's error.
+     */
+    Mono<List<Movie>> apply(ClientResponse response, Snapshot snapshot, boolean isDelta) {
+        if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && snapshot != null) {
+            notModified.increment();
+            return response.releaseBody().thenReturn(snapshot.movies());
+        }
+        if (!response.statusCode().is2xxSuccessful()) {
+            return response.createException().flatMap(Mono::error);
+        }
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        return response.bodyToFlux(Movie.class).collectList().map(movies -> {
+            List<Movie> catalogue;
+            if (isDelta) {
+                delta.increment();
+                catalogue = merge(snapshot.movies(), movies);
+            } else {
+                full.increment();
+                catalogue = List.copyOf(movies);
+            }
+            long lastModified = headers.getLastModified();
+            if (lastModified < 0 && isDelta) {
+                lastModified = snapshot.lastModified();
+            }
+            // a delta's entity tag names the delta, and a merged catalogue has none of its own
+            String etag = isDelta ? null : headers.getETag();
+            last.set(new Snapshot(catalogue, etag, lastModified));
+            return catalogue;
+        });
+    }
+
+    /**
+     * Changes replace the movies with the same id, or are appended. Movies without an id cannot be
+     * matched: those of the stored catalogue are kept as they are, and those of the delta are
+     * dropped, as there is no telling which movie they change.
+     */
+    private static List<Movie> merge(List<Movie> movies, List<Movie> changes) {
+        Map<Long, Movie> byId = new LinkedHashMap<>();
+        List<Movie> withoutId = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getMovie_id() == null) {
+                withoutId.add(movie);
+            } else {
+                byId.put(movie.getMovie_id(), movie);
+            }
+        }
+        int dropped = 0;
+        for (Movie change : changes) {
+            if (change.getMovie_id() == null) {
+                dropped++;
+            } else {
+                byId.put(change.getMovie_id(), change);
+            }
+        }
+        if (dropped > 0) {
+            log.warn("Ignored {} movies without an id in a catalogue delta", dropped);
+        }
+        List<Movie> merged = new ArrayList<>(byId.values());
+        merged.addAll(withoutId);
+        return List.copyOf(merged);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("movies.client.sync")
+                .description("getAllMovies responses by how much of the catalogue they carried")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.ConcurrencyLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests in flight per endpoint at an {@link AdaptiveLimit} learnt from their round
+ * trips. A request beyond the limit waits up to {@code max-wait} in a queue of at most
+ * {@code max-queue} callers and otherwise fails with {@link ConcurrencyLimitExceededException}.
+ * Sitting innermost, every attempt, retry or hedge takes its own permit. The current limit is
+ * published as {@code movies.client.concurrency.limit}.
+ */
+@Component
+@Order(MovieCallDecorator.CONCURRENCY_LIMIT_ORDER)
+public class ConcurrencyLimitDecorator implements MovieCallDecorator {
+    private final MoviesAppProperties.Concurrency properties;
+    private final Map<MovieEndpoint, EndpointLimiter> limiters = new EnumMap<>(MovieEndpoint.class);
+
+    public ConcurrencyLimitDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getConcurrency();
+        for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+            limiters.put(endpoint, new EndpointLimiter(endpoint, meterRegistry));
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        EndpointLimiter limiter = limiters.get(endpoint);
+        return limiter.acquire().flatMap(permit -> call
+                .doOnSuccess(value -> permit.release(false))
+                .doOnError(ex -> permit.release(isDrop(ex)))
+                .doOnCancel(permit::abandon));
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        EndpointLimiter limiter = limiters.get(endpoint);
+        return limiter.acquire().flatMapMany(permit -> call
+                .doOnComplete(() -> permit.release(false))
+                .doOnError(ex -> permit.release(isDrop(ex)))
+                .doOnCancel(permit::abandon));
+    }
+
+    /**
+     * Signs that the service is overloaded rather than that the request was wrong.
+     */
+    static boolean isDrop(Throwable ex) {
+        return ResilienceDecorator.isRetryable(ex) || ex instanceof WebClientResponseException.TooManyRequests;
+    }
+
+    private class EndpointLimiter {
+        private final MovieEndpoint endpoint;
+        private final AdaptiveLimit limit = new AdaptiveLimit(properties);
+        private final AtomicInteger inflight = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        private final Counter rejected;
+
+        EndpointLimiter(MovieEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            Gauge.builder("movies.client.concurrency.limit", limit, AdaptiveLimit::getLimit)
+                    .description("Requests the endpoint may currently have in flight")
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("movies.client.concurrency.rejected")
+                    .description("Calls refused because the concurrency limit was reached")
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry);
+        }
+
+        Mono<Permit> acquire() {
+            return Mono.defer(() -> {
+                if (tryAcquire()) {
+                    return Mono.just(new Permit(this));
+                }
+                if (queued.incrementAndGet() > properties.getMaxQueue()) {
+                    queued.decrementAndGet();
+                    return reject();
+                }
+                return Mono.<Permit>create(sink -> {
+                            Waiter waiter = new Waiter(sink);
+                            sink.onCancel(waiter::cancel);
+                            waiters.add(waiter);
+                            drain();
+                        })
+                        .timeout(properties.getMaxWait())
+                        .onErrorResume(TimeoutException.class, ex -> reject())
+                        .doFinally(signal -> queued.decrementAndGet());
+            });
+        }
+
+        private Mono<Permit> reject() {
+            rejected.increment();
+            return Mono.error(new ConcurrencyLimitExceededException(endpoint, limit.getLimit()));
+        }
+
+        private boolean tryAcquire() {
+            int current = inflight.get();
+            while (current < limit.getLimit()) {
+                if (inflight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                current = inflight.get();
+            }
+            return false;
+        }
+
+        void release(Permit permit, boolean dropped, boolean sample) {
+            if (sample) {
+                limit.onSample(System.nanoTime() - permit.startNanos, permit.inflightAtStart, dropped);
+            }
+            inflight.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            while (!waiters.isEmpty() && tryAcquire()) {
+                Waiter waiter = waiters.poll();
+                if (waiter == null || !waiter.grant(new Permit(this))) {
+                    inflight.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Permit permit;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        boolean grant(Permit permit) {
+            this.permit = permit;
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            sink.success(permit);
+            return true;
+        }
+
+        /**
+         * A waiter cancelled after its permit was granted but before it was delivered hands the
+         * permit back; once delivered, the call that holds it releases it.
+         */
+        void cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                permit.abandon();
+            }
+        }
+    }
+
+    private static class Permit {
+        private final EndpointLimiter limiter;
+        private final long startNanos = System.nanoTime();
+        private final int inflightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(EndpointLimiter limiter) {
+            this.limiter = limiter;
+            this.inflightAtStart = limiter.inflight.get();
+        }
+
+        void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(this, dropped, true);
+            }
+        }
+
+        /** Gives the permit back without a sample, e.g. when the losing side of a hedge is cancelled. */
+        void abandon() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(this, false, false);
+            }
+        }
+    }
+}
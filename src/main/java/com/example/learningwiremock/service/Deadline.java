@@ -0,0 +1,94 @@
+package com.example.learningwiremock.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Instant by which the caller needs an answer, carried in the Reactor context of a call:
+ * <pre>{@code
+ * reactiveMovieClient.getMovieById(id).contextWrite(Deadline.within(Duration.ofMillis(800)))
+ * }</pre>
+ * A deadline can only be tightened; a nested {@link #within(Duration)} keeps whichever instant
+ * comes first. It is measured on {@link System#nanoTime()} and sent to the service as the time
+ * left, so clocks never need to agree.
+ */
+public final class Deadline {
+    private static final Object KEY = Deadline.class;
+
+    private final long nanoTime;
+
+    private Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Starts the budget when the call is subscribed, keeping any earlier deadline already in the
+     * context.
+     */
+    public static Function<Context, Context> within(Duration budget) {
+        return context -> put(context, after(budget));
+    }
+
+    public static Optional<Deadline> from(ContextView context) {
+        return context.getOrEmpty(KEY);
+    }
+
+    static Context put(Context context, Deadline deadline) {
+        return context.put(KEY, from(context).map(deadline::earliest).orElse(deadline));
+    }
+
+    /**
+     * Cancels {@code call} once this deadline passes and fails it with {@code expired}; a call
+     * subscribed too late is not started at all.
+     */
+    <T> Mono<T> bound(Mono<T> call, Supplier<? extends RuntimeException> expired) {
+        if (isExpired()) {
+            return Mono.error(expired);
+        }
+        return call.timeout(remaining()).onErrorMap(TimeoutException.class, ex -> expired.get());
+    }
+
+    /**
+     * Bound on the whole list rather than on the gap between two movies.
+     */
+    <T> Flux<T> bound(Flux<T> call, Supplier<? extends RuntimeException> expired) {
+        if (isExpired()) {
+            return Flux.error(expired);
+        }
+        // re-armed after every movie with whatever is left
+        Mono<Long> expiry = Mono.defer(() -> Mono.delay(remaining()));
+        return call.timeout(expiry, movie -> expiry).onErrorMap(TimeoutException.class, ex -> expired.get());
+    }
+
+    /**
+     * Time left, never negative.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, nanoTime - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return nanoTime - System.nanoTime() <= 0;
+    }
+
+    Deadline earliest(Deadline other) {
+        return nanoTime - other.nanoTime <= 0 ? this : other;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline in " + remaining().toMillis() + "ms";
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Bounds every call by the earlier of the caller's {@link Deadline} and the endpoint's
+ * {@code moviesapp.timeouts.operations} budget. The bound covers retries, backoff and hedges, which
+ * all run inside it, and the deadline is put into the context so that each attempt sends the time
+ * it has left. A call whose deadline has passed is cancelled, releasing its connection, and fails
+ * with {@link DeadlineExceededException}; one that is already late is never started. Such failures
+ * are counted in {@code movies.client.deadline.exceeded}.
+ */
+@Component
+@Order(MovieCallDecorator.DEADLINE_ORDER)
+public class DeadlineDecorator implements MovieCallDecorator {
+    private final Map<MovieEndpoint, Duration> operations;
+    private final Map<MovieEndpoint, Counter> exceeded = new EnumMap<>(MovieEndpoint.class);
+
+    public DeadlineDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.operations = properties.getTimeouts().getOperations();
+        for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+            exceeded.put(endpoint, Counter.builder("movies.client.deadline.exceeded")
+                    .description("Calls abandoned because their deadline passed")
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Deadline deadline = deadline(endpoint, context);
+            if (deadline == null) {
+                return call;
+            }
+            return deadline.bound(call, () -> expired(endpoint))
+                    .contextWrite(inner -> Deadline.put(inner, deadline));
+        });
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        return Flux.deferContextual(context -> {
+            Deadline deadline = deadline(endpoint, context);
+            if (deadline == null) {
+                return call;
+            }
+            return deadline.bound(call, () -> expired(endpoint))
+                    .contextWrite(inner -> Deadline.put(inner, deadline));
+        });
+    }
+
+    private Deadline deadline(MovieEndpoint endpoint, ContextView context) {
+        Duration budget = operations.get(endpoint);
+        Deadline operation = budget == null ? null : Deadline.after(budget);
+        Deadline caller = Deadline.from(context).orElse(null);
+        if (caller == null || operation == null) {
+            return caller == null ? operation : caller;
+        }
+        return caller.earliest(operation);
+    }
+
+    private DeadlineExceededException expired(MovieEndpoint endpoint) {
+        exceeded.get(endpoint).increment();
+        return new DeadlineExceededException("Deadline exceeded for " + endpoint);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedged reads: when an idempotent call has not answered within the endpoint's recent latency
+ * percentile, a second identical request is sent and whichever produces a value first wins; the
+ * other one is cancelled. A failure only wins once both requests have failed, and no hedge is sent
+ * after the first request has already ended. Hedges draw from a budget that every call tops up by
+ * {@code budget-ratio}, so at most that fraction of extra load (plus a small burst) is ever added.
+ */
+@Component
+@Order(MovieCallDecorator.HEDGING_ORDER)
+public class HedgingDecorator implements MovieCallDecorator {
+    private final MoviesAppProperties.Hedging properties;
+    private final Map<MovieEndpoint, EndpointHedge> hedges = new EnumMap<>(MovieEndpoint.class);
+
+    public HedgingDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getHedging();
+        for (MovieEndpoint endpoint : this.properties.getEndpoints()) {
+            if (endpoint.isIdempotent()) {
+                hedges.put(endpoint, new EndpointHedge(endpoint, meterRegistry));
+            }
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        EndpointHedge hedge = hedges.get(endpoint);
+        if (!properties.isEnabled() || hedge == null) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            hedge.deposit();
+            Sinks.One<Boolean> primaryDone = Sinks.one();
+            Mono<T> primary = hedge.timed(call).doOnTerminate(() -> primaryDone.tryEmitValue(true));
+            Mono<T> backup = Mono.delay(hedge.delay())
+                    .takeUntilOther(primaryDone.asMono())
+                    .flatMap(tick -> hedge.tryHedge() ? hedge.timed(call) : Mono.<T>empty());
+            return Mono.firstWithValue(primary, backup)
+                    .onErrorResume(NoSuchElementException.class,
+                            ex -> Mono.justOrEmpty(failure(ex)).flatMap(Mono::error));
+        });
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        EndpointHedge hedge = hedges.get(endpoint);
+        if (!properties.isEnabled() || hedge == null) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            hedge.deposit();
+            Sinks.One<Boolean> primaryDone = Sinks.one();
+            Flux<T> primary = hedge.timed(call).doOnTerminate(() -> primaryDone.tryEmitValue(true));
+            Flux<T> backup = Mono.delay(hedge.delay())
+                    .takeUntilOther(primaryDone.asMono())
+                    .flatMapMany(tick -> hedge.tryHedge() ? hedge.timed(call) : Flux.<T>empty());
+            return Flux.firstWithValue(primary, backup)
+                    .onErrorResume(NoSuchElementException.class,
+                            ex -> Mono.justOrEmpty(failure(ex)).flatMap(Mono::error));
+        });
+    }
+
+    /**
+     * What made a hedged call fail once neither request produced a value: the primary's error,
+     * else the hedge's, or none when both completed empty or no hedge was sent.
+     */
+    private static Throwable failure(NoSuchElementException allFailed) {
+        for (Throwable failure : Exceptions.unwrapMultiple(allFailed.getCause())) {
+            if (!(failure instanceof NoSuchElementException)) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    private class EndpointHedge {
+        private static final long TOKEN = 1000;
+
+        private final LatencyWindow latencies = new LatencyWindow(properties.getSampleSize(), properties.getPercentile());
+        private final AtomicLong budget = new AtomicLong(properties.getBudgetBurst() * TOKEN);
+        private final Counter sent;
+        private final Counter rejected;
+
+        EndpointHedge(MovieEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.sent = Counter.builder("movies.client.hedges")
+                    .tag("endpoint", endpoint.name())
+                    .tag("outcome", "sent")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("movies.client.hedges")
+                    .tag("endpoint", endpoint.name())
+                    .tag("outcome", "over_budget")
+                    .register(meterRegistry);
+        }
+
+        Duration delay() {
+            Duration percentile = latencies.count() < properties.getMinSamples() ? null : latencies.percentile();
+            if (percentile == null) {
+                return properties.getMaxDelay();
+            }
+            if (percentile.compareTo(properties.getMinDelay()) < 0) {
+                return properties.getMinDelay();
+            }
+            return percentile.compareTo(properties.getMaxDelay()) > 0 ? properties.getMaxDelay() : percentile;
+        }
+
+        void deposit() {
+            long deposit = (long) (properties.getBudgetRatio() * TOKEN);
+            long cap = properties.getBudgetBurst() * TOKEN;
+            budget.updateAndGet(tokens -> Math.min(cap, tokens + deposit));
+        }
+
+        boolean tryHedge() {
+            long tokens;
+            do {
+                tokens = budget.get();
+                if (tokens < TOKEN) {
+                    rejected.increment();
+                    return false;
+                }
+            } while (!budget.compareAndSet(tokens, tokens - TOKEN));
+            sent.increment();
+            return true;
+        }
+
+        <T> Mono<T> timed(Mono<T> call) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return call.doOnSuccess(value -> latencies.record(System.nanoTime() - start));
+            });
+        }
+
+        <T> Flux<T> timed(Flux<T> call) {
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                AtomicBoolean recorded = new AtomicBoolean();
+                return call.doOnEach(signal -> {
+                    if (!signal.isOnError() && recorded.compareAndSet(false, true)) {
+                        latencies.record(System.nanoTime() - start);
+                    }
+                });
+            });
+        }
+    }
+}
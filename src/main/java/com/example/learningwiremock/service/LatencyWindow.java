@@ -0,0 +1,54 @@
+package com.example.learningwiremock.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of the most recent latencies of one endpoint, from which a percentile is
+ * estimated. The percentile is recomputed every {@code capacity / 16} samples rather than on
+ * every read, so reading it stays cheap on the hot path. Samples are recorded from any thread.
+ */
+class LatencyWindow {
+    private final AtomicLongArray samples;
+    private final double percentile;
+    private final int refreshEvery;
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile long percentileNanos = -1;
+
+    LatencyWindow(int capacity, double percentile) {
+        this.samples = new AtomicLongArray(capacity);
+        this.percentile = percentile;
+        this.refreshEvery = Math.max(1, capacity / 16);
+    }
+
+    void record(long nanos) {
+        long count = recorded.getAndIncrement();
+        samples.set((int) (count % samples.length()), nanos);
+        if ((count + 1) % refreshEvery == 0) {
+            refresh(count + 1);
+        }
+    }
+
+    long count() {
+        return recorded.get();
+    }
+
+    /** The estimated percentile, or {@code null} until enough samples have been recorded to compute one. */
+    Duration percentile() {
+        long nanos = percentileNanos;
+        return nanos < 0 ? null : Duration.ofNanos(nanos);
+    }
+
+    private void refresh(long count) {
+        int size = (int) Math.min(count, samples.length());
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.min(size - 1, Math.ceil(percentile * size) - 1);
+        percentileNanos = sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Outermost decorator: records what the caller experiences for every endpoint, retries and hedges
+ * included.
+ * <ul>
+ *     <li>{@code movies.client.requests} timer with p50/p95/p99 and a latency histogram, tagged by
+ *     endpoint, outcome, HTTP status and exception</li>
+ *     <li>{@code movies.client.errors} counter with the same tags, for failed calls only</li>
+ *     <li>{@code movies.client.inflight} gauge of calls currently in progress per endpoint</li>
+ * </ul>
+ */
+@Component
+@Order(MovieCallDecorator.METRICS_ORDER)
+public class MetricsDecorator implements MovieCallDecorator {
+    private final MeterRegistry meterRegistry;
+    private final Map<MovieEndpoint, AtomicInteger> inFlight = new EnumMap<>(MovieEndpoint.class);
+    private final Map<MovieEndpoint, Timer> succeeded = new EnumMap<>(MovieEndpoint.class);
+    private final Map<MovieEndpoint, Timer> cancelled = new EnumMap<>(MovieEndpoint.class);
+    private final Map<FailureTags, FailureMeters> failures = new ConcurrentHashMap<>();
+
+    /** Status and exception tags are only known once a call fails, so these meters are made on first use. */
+    private record FailureTags(MovieEndpoint endpoint, String outcome, String status, String exception) {
+    }
+
+    private record FailureMeters(Timer timer, Counter errors) {
+    }
+
+    public MetricsDecorator(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+            AtomicInteger gauge = new AtomicInteger();
+            Gauge.builder("movies.client.inflight", gauge, AtomicInteger::get)
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry);
+            inFlight.put(endpoint, gauge);
+            succeeded.put(endpoint, timer(endpoint, "SUCCESS", "2xx", "none"));
+            cancelled.put(endpoint, timer(endpoint, "CANCELLED", "none", "none"));
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = start(endpoint);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            return call.doOnError(failure::set)
+                    .doFinally(signal -> stop(endpoint, sample, signal, failure.get()));
+        });
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = start(endpoint);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            return call.doOnError(failure::set)
+                    .doFinally(signal -> stop(endpoint, sample, signal, failure.get()));
+        });
+    }
+
+    private Timer.Sample start(MovieEndpoint endpoint) {
+        inFlight.get(endpoint).incrementAndGet();
+        return Timer.start(meterRegistry);
+    }
+
+    private void stop(MovieEndpoint endpoint, Timer.Sample sample, SignalType signal, Throwable failure) {
+        inFlight.get(endpoint).decrementAndGet();
+        if (failure == null) {
+            sample.stop((signal == SignalType.CANCEL ? cancelled : succeeded).get(endpoint));
+            return;
+        }
+        String status = signal == SignalType.CANCEL ? "none" : status(failure);
+        FailureMeters meters = failures.computeIfAbsent(
+                new FailureTags(endpoint, outcome(signal, failure), status, failure.getClass().getSimpleName()),
+                this::failureMeters);
+        sample.stop(meters.timer());
+        meters.errors().increment();
+    }
+
+    private FailureMeters failureMeters(FailureTags tags) {
+        return new FailureMeters(timer(tags.endpoint(), tags.outcome(), tags.status(), tags.exception()),
+                Counter.builder("movies.client.errors")
+                        .tag("endpoint", tags.endpoint().name())
+                        .tag("status", tags.status())
+                        .tag("exception", tags.exception())
+                        .register(meterRegistry));
+    }
+
+    private Timer timer(MovieEndpoint endpoint, String outcome, String status, String exception) {
+        return Timer.builder("movies.client.requests")
+                .tag("endpoint", endpoint.name())
+                .tag("outcome", outcome)
+                .tag("status", status)
+                .tag("exception", exception)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String outcome(SignalType signal, Throwable failure) {
+        if (signal == SignalType.CANCEL) {
+            return "CANCELLED";
+        }
+        if (failure instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is4xxClientError() ? "CLIENT_ERROR" : "SERVER_ERROR";
+        }
+        return "UNKNOWN";
+    }
+
+    private static String status(Throwable failure) {
+        if (failure instanceof WebClientResponseException responseException) {
+            return String.valueOf(responseException.getStatusCode().value());
+        }
+        return "none";
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.model.Movie;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of movies by id, bounded by an approximate byte weight and a time to live
+ * and evicted with Caffeine's W-TinyLFU policy. Concurrent misses for the same id share one
+ * in-flight load; a failed or empty load is not cached.
+ */
+class MovieCache {
+    private final AsyncLoadingCache<Long, Movie> cache;
+
+    MovieCache(Function<Long, Mono<Movie>> loader, MoviesAppProperties.Cache properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumWeight())
+                .weigher((Long id, Movie movie) -> weigh(movie))
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync((id, executor) -> loader.apply(id).toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "movies.byId");
+    }
+
+    /**
+     * A failed or empty load is dropped before the caller hears of it, rather than whenever Caffeine's
+     * own completion callback gets to it, so that the caller's next lookup loads afresh. Every caller
+     * gets its own copy of the movie, so that one caller's changes never reach the cache.
+     */
+    Mono<Movie> get(Long id) {
+        return Mono.defer(() -> {
+            CompletableFuture<Movie> load = cache.get(id);
+            // a copy of the future, so that cancelling one caller cannot cancel the shared load
+            return Mono.fromFuture(load.copy())
+                    .doOnSuccess(movie -> {
+                        if (movie == null) {
+                            cache.asMap().remove(id, load);
+                        }
+                    })
+                    .doOnError(ex -> cache.asMap().remove(id, load))
+                    .map(movie -> movie.toBuilder().build());
+        });
+    }
+
+    void put(Movie movie) {
+        if (movie != null && movie.getMovie_id() != null) {
+            cache.put(movie.getMovie_id(), CompletableFuture.completedFuture(movie.toBuilder().build()));
+        }
+    }
+
+    void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    private static int weigh(Movie movie) {
+        int chars = length(movie.getName()) + length(movie.getCast());
+        return 64 + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
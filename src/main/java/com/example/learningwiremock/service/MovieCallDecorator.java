@@ -0,0 +1,24 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Extension point around every call {@link ReactiveMovieClient} makes. Decorators are Spring beans
+ * applied in {@link org.springframework.core.annotation.Order} order, the lowest order being the
+ * outermost. They see the raw WebClient errors, before those are mapped to the movie exceptions.
+ */
+public interface MovieCallDecorator {
+    int METRICS_ORDER = 100;
+    int DEADLINE_ORDER = 200;
+    int RESILIENCE_ORDER = 300;
+    int HEDGING_ORDER = 400;
+    int RATE_LIMIT_ORDER = 450;
+    int CONCURRENCY_LIMIT_ORDER = 500;
+    int TIMING_ORDER = 600;
+
+    <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call);
+
+    <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call);
+}
@@ -0,0 +1,366 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.model.Movie;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Local copy of the whole catalogue, indexed by id, year, release date and the words of the name.
+ * It is filled from every complete {@code getAllMovies} response and, once in use, reloaded in the
+ * background every {@code refresh-interval}. A reload is applied as a diff, so unchanged movies keep
+ * their index entries. Writes made through the client are applied straight away.
+ * <p>
+ * Lookups return nothing while the copy is missing or older than {@code max-staleness}, and callers
+ * then ask the service. A name matches when every word of the query is a prefix of a word of the
+ * name, ignoring case.
+ * <p>
+ * With {@code snapshot-path} every full load is also saved as a {@link MovieSnapshot}. On start a
+ * recent enough snapshot is mapped and indexed, and lookups are answered from it at once while the
+ * first reload runs in the background; it ages from when it was saved, not from when it was read. Its movies are only decoded when a lookup returns them, or
+ * all at once before the first change is applied.
+ */
+@Slf4j
+class MovieCatalogue implements AutoCloseable {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Supplier<Flux<Movie>> loader;
+    private final MoviesAppProperties.Catalogue properties;
+    private final Map<Long, Movie> byId = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Set<Long>> byYear = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> byReleaseDate = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Set<Long>> byNameWord = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicLong savedGeneration = new AtomicLong();
+    private volatile long loadedAtNanos;
+    private volatile long generation;
+    private volatile Disposable refresher;
+    /** Movies of the snapshot loaded on start that are not yet in {@code byId}. */
+    private volatile MovieSnapshot snapshot;
+
+    MovieCatalogue(Supplier<Flux<Movie>> loader, MoviesAppProperties.Catalogue properties, MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.properties = properties;
+        Gauge.builder("movies.catalogue.size", this, MovieCatalogue::size)
+                .description("Movies held in the local catalogue")
+                .register(meterRegistry);
+        Gauge.builder("movies.catalogue.age", this, MovieCatalogue::ageSeconds)
+                .description("Seconds since the local catalogue was last loaded; NaN until the first load")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        if (properties.getSnapshotPath() != null) {
+            warmStart(properties.getSnapshotPath());
+        }
+    }
+
+    /**
+     * Passes the movies through and, when the response completes, makes them the catalogue.
+     */
+    Flux<Movie> capture(Flux<Movie> movies) {
+        return Flux.defer(() -> {
+            List<Movie> received = new ArrayList<>();
+            return movies.doOnNext(movie -> received.add(copy(movie)))
+                    .doOnComplete(() -> {
+                        replaceAll(received);
+                        startRefreshing(properties.getRefreshInterval());
+                    });
+        });
+    }
+
+    Flux<Movie> findByName(String name) {
+        return query(() -> {
+            List<String> words = words(name);
+            if (words.isEmpty()) {
+                return List.of();
+            }
+            Set<Long> ids = null;
+            for (String word : words) {
+                Set<Long> matches = new HashSet<>();
+                byNameWord.subMap(word, true, word + Character.MAX_VALUE, true).values().forEach(matches::addAll);
+                if (ids == null) {
+                    ids = matches;
+                } else {
+                    ids.retainAll(matches);
+                }
+            }
+            return resolve(ids.stream().sorted().toList());
+        });
+    }
+
+    Flux<Movie> findByYear(int fromYear, int toYear) {
+        return query(() -> resolve(flatten(byYear.subMap(fromYear, true, toYear, true).values())));
+    }
+
+    Flux<Movie> findReleasedBetween(LocalDate from, LocalDate to) {
+        return query(() -> resolve(flatten(byReleaseDate.subMap(from, true, to, true).values())));
+    }
+
+    synchronized void upsert(Movie movie) {
+        if (movie == null || movie.getMovie_id() == null) {
+            return;
+        }
+        materialize();
+        Movie stored = copy(movie);
+        Movie previous = byId.put(stored.getMovie_id(), stored);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(stored);
+    }
+
+    synchronized void remove(Long id) {
+        materialize();
+        Movie previous = byId.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    synchronized void removeByName(String name) {
+        materialize();
+        byId.values().stream()
+                .filter(movie -> Objects.equals(movie.getName(), name))
+                .map(Movie::getMovie_id)
+                .toList()
+                .forEach(this::remove);
+    }
+
+    @Override
+    public void close() {
+        Disposable current = refresher;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private Flux<Movie> query(Supplier<List<Movie>> lookup) {
+        return Flux.defer(() -> {
+            Duration age = age();
+            if (age == null) {
+                startRefreshing(Duration.ZERO);
+                return Flux.empty();
+            }
+            if (snapshot != null) {
+                startRefreshing(Duration.ZERO);
+            }
+            return age.compareTo(properties.getMaxStaleness()) > 0 ? Flux.empty() : Flux.fromIterable(lookup.get());
+        });
+    }
+
+    private synchronized void replaceAll(Collection<Movie> movies) {
+        materialize();
+        Set<Long> current = new HashSet<>();
+        for (Movie movie : movies) {
+            if (movie.getMovie_id() == null) {
+                continue;
+            }
+            current.add(movie.getMovie_id());
+            if (!movie.equals(byId.get(movie.getMovie_id()))) {
+                upsert(movie);
+            }
+        }
+        new ArrayList<>(byId.keySet()).stream()
+                .filter(id -> !current.contains(id))
+                .forEach(this::remove);
+        loadedAtNanos = System.nanoTime();
+        if (properties.getSnapshotPath() != null) {
+            save(++generation, List.copyOf(byId.values()));
+        }
+    }
+
+    /**
+     * Indexes the snapshot without decoding its casts and serves it, for as long as it is within
+     * {@code max-staleness} of when it was saved; the first lookup starts the reload that replaces it.
+     */
+    private void warmStart(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            MovieSnapshot saved = MovieSnapshot.open(path);
+            if (saved.savedAt().isBefore(Instant.now().minus(properties.getSnapshotMaxAge()))) {
+                log.info("Ignoring {}, it is older than {}", saved, properties.getSnapshotMaxAge());
+                return;
+            }
+            for (int i = 0; i < saved.size(); i++) {
+                index(saved.id(i), saved.year(i), saved.releaseDate(i), saved.name(i));
+            }
+            snapshot = saved;
+            // as old as the snapshot, so max-staleness still bounds the age of what is served
+            Duration age = Duration.between(saved.savedAt(), Instant.now());
+            loadedAtNanos = System.nanoTime() - Math.max(0, age.toNanos());
+            log.info("Catalogue warm-started from {}", saved);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not read the catalogue snapshot {}: {}", path, ex.toString());
+        }
+    }
+
+    /**
+     * Copies the movies of the start-up snapshot that nothing has replaced into {@code byId}, so
+     * that changes can be applied to them.
+     */
+    private synchronized void materialize() {
+        MovieSnapshot saved = snapshot;
+        if (saved == null) {
+            return;
+        }
+        for (int i = 0; i < saved.size(); i++) {
+            byId.putIfAbsent(saved.id(i), saved.movie(i));
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Written off the calling thread; a save overtaken by a newer load is skipped.
+     */
+    private void save(long generation, List<Movie> movies) {
+        Schedulers.boundedElastic().schedule(() -> {
+            synchronized (savedGeneration) {
+                if (savedGeneration.get() >= generation) {
+                    return;
+                }
+                try {
+                    MovieSnapshot.write(properties.getSnapshotPath(), movies, Instant.now());
+                    savedGeneration.set(generation);
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Could not save the catalogue snapshot {}: {}", properties.getSnapshotPath(), ex.toString());
+                }
+            }
+        });
+    }
+
+    private int size() {
+        MovieSnapshot saved = snapshot;
+        return saved == null ? byId.size() : saved.size();
+    }
+
+    private void startRefreshing(Duration initialDelay) {
+        if (refreshing.compareAndSet(false, true)) {
+            refresher = Flux.interval(initialDelay, properties.getRefreshInterval())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> loader.get()
+                            .collectList()
+                            .doOnNext(this::replaceAll)
+                            .doOnError(ex -> log.warn("Refreshing the movie catalogue failed: {}", ex.toString()))
+                            .onErrorComplete(), 1)
+                    .subscribe();
+        }
+    }
+
+    /** Null until the first load. */
+    private Duration age() {
+        long loadedAt = loadedAtNanos;
+        return loadedAt == 0 ? null : Duration.ofNanos(System.nanoTime() - loadedAt);
+    }
+
+    /** NaN until the first load, so that a catalogue never loaded does not pass for a fresh one. */
+    private double ageSeconds() {
+        Duration age = age();
+        return age == null ? Double.NaN : age.toMillis() / 1000.0;
+    }
+
+    private void index(Movie movie) {
+        index(movie.getMovie_id(), movie.getYear(), movie.getRelease_date(), movie.getName());
+    }
+
+    private void index(Long id, Integer year, LocalDate releaseDate, String name) {
+        if (year != null) {
+            byYear.computeIfAbsent(year, y -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if (releaseDate != null) {
+            byReleaseDate.computeIfAbsent(releaseDate, date -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        for (String word : words(name)) {
+            byNameWord.computeIfAbsent(word, w -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private void unindex(Movie movie) {
+        Long id = movie.getMovie_id();
+        if (movie.getYear() != null) {
+            removeId(byYear, movie.getYear(), id);
+        }
+        if (movie.getRelease_date() != null) {
+            removeId(byReleaseDate, movie.getRelease_date(), id);
+        }
+        for (String word : words(movie.getName())) {
+            removeId(byNameWord, word, id);
+        }
+    }
+
+    private static <K> void removeId(Map<K, Set<Long>> index, K key, Long id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private List<Movie> resolve(List<Long> ids) {
+        return ids.stream()
+                .map(this::lookup)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * A copy of the stored movie, or the movie decoded from the start-up snapshot.
+     */
+    private Movie lookup(Long id) {
+        Movie stored = byId.get(id);
+        if (stored != null) {
+            return copy(stored);
+        }
+        MovieSnapshot saved = snapshot;
+        if (saved == null) {
+            return null;
+        }
+        int index = saved.indexOf(id);
+        return index < 0 ? null : saved.movie(index);
+    }
+
+    private static List<Long> flatten(Collection<Set<Long>> ids) {
+        return ids.stream().flatMap(set -> set.stream().sorted()).toList();
+    }
+
+    private static List<String> words(String name) {
+        if (name == null) {
+            return List.of();
+        }
+        return Arrays.stream(WORD_SEPARATOR.split(name.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    /** Callers get their own instances, so mutating a returned movie cannot corrupt the indexes. */
+    private static Movie copy(Movie movie) {
+        return new Movie(movie.getCast(), movie.getMovie_id(), movie.getName(), movie.getRelease_date(), movie.getYear());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.model.Movie;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of list responses with stale-while-revalidate semantics. An answer younger than
+ * {@code soft-ttl} is served as is. An older one is still served straight away while a single
+ * background request revalidates it; if that request fails the old answer stays in use, so callers
+ * see neither the error nor its latency until the answer is {@code hard-ttl} old and has to be
+ * fetched again. Any successful write clears the cache.
+ * <p>
+ * {@code movies.client.listcache.requests} counts lookups by {@code result} (fresh, stale, miss),
+ * {@code movies.client.listcache.staleness} records the age of every stale answer served and
+ * {@code movies.client.listcache.revalidations} counts background requests by {@code result}.
+ */
+@Slf4j
+class MovieListCache {
+    private final MoviesAppProperties.ListCache properties;
+    private final Cache<String, Entry> entries;
+    private final Map<MovieEndpoint, Meters> meters = new EnumMap<>(MovieEndpoint.class);
+    /** Bumped by every write, so that a response requested before it is not remembered. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private record Entry(List<Movie> movies, long fetchedAtNanos, AtomicBoolean revalidating) {
+        Entry(List<Movie> movies) {
+            this(List.copyOf(movies), System.nanoTime(), new AtomicBoolean());
+        }
+
+        Duration age() {
+            return Duration.ofNanos(System.nanoTime() - fetchedAtNanos);
+        }
+    }
+
+    private record Meters(Counter fresh, Counter stale, Counter miss, DistributionSummary staleness,
+                          Counter revalidated, Counter revalidationFailed) {
+        Meters(MovieEndpoint endpoint, MeterRegistry meterRegistry) {
+            this(requests(endpoint, "fresh", meterRegistry),
+                    requests(endpoint, "stale", meterRegistry),
+                    requests(endpoint, "miss", meterRegistry),
+                    DistributionSummary.builder("movies.client.listcache.staleness")
+                            .description("Age of the cached lists served after their soft TTL")
+                            .baseUnit("seconds")
+                            .tag("endpoint", endpoint.name())
+                            .register(meterRegistry),
+                    revalidations(endpoint, "success", meterRegistry),
+                    revalidations(endpoint, "failure", meterRegistry));
+        }
+
+        private static Counter requests(MovieEndpoint endpoint, String result, MeterRegistry meterRegistry) {
+            return Counter.builder("movies.client.listcache.requests")
+                    .description("List lookups answered fresh or stale from the cache, or missed")
+                    .tag("endpoint", endpoint.name())
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private static Counter revalidations(MovieEndpoint endpoint, String result, MeterRegistry meterRegistry) {
+            return Counter.builder("movies.client.listcache.revalidations")
+                    .description("Background requests made to revalidate a stale list")
+                    .tag("endpoint", endpoint.name())
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+
+    MovieListCache(MoviesAppProperties.ListCache properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+            meters.put(endpoint, new Meters(endpoint, meterRegistry));
+        }
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getHardTtl())
+                .build();
+    }
+
+    /**
+     * The cached answer for {@code key}, or {@code loader}'s movies as they arrive, remembered once
+     * the response is complete.
+     */
+    Flux<Movie> get(MovieEndpoint endpoint, String key, Supplier<Flux<Movie>> loader) {
+        return Flux.defer(() -> {
+            Meters endpointMeters = meters.get(endpoint);
+            Entry entry = entries.getIfPresent(key);
+            if (entry == null) {
+                endpointMeters.miss().increment();
+                return capture(key, loader.get());
+            }
+            Duration age = entry.age();
+            if (age.compareTo(properties.getSoftTtl()) < 0) {
+                endpointMeters.fresh().increment();
+            } else {
+                endpointMeters.stale().increment();
+                endpointMeters.staleness().record(age.toMillis() / 1000.0);
+                revalidate(endpoint, key, entry, loader);
+            }
+            return Flux.fromIterable(entry.movies()).map(movie -> movie.toBuilder().build());
+        });
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+        entries.invalidateAll();
+    }
+
+    private Flux<Movie> capture(String key, Flux<Movie> movies) {
+        long requestedIn = generation.get();
+        List<Movie> received = new ArrayList<>();
+        return movies.doOnNext(movie -> received.add(movie.toBuilder().build()))
+                .doOnComplete(() -> {
+                    if (generation.get() == requestedIn) {
+                        entries.put(key, new Entry(received));
+                    }
+                });
+    }
+
+    private void revalidate(MovieEndpoint endpoint, String key, Entry entry, Supplier<Flux<Movie>> loader) {
+        if (!entry.revalidating().compareAndSet(false, true)) {
+            return;
+        }
+        capture(key, loader.get()).then().subscribe(
+                done -> {
+                },
+                ex -> {
+                    log.warn("Revalidating {} failed, still serving the answer from {}s ago: {}",
+                            key, entry.age().toSeconds(), ex.toString());
+                    meters.get(endpoint).revalidationFailed().increment();
+                    entry.revalidating().set(false);
+                },
+                () -> meters.get(endpoint).revalidated().increment());
+    }
+}
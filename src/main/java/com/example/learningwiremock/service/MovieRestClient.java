@@ -1,155 +1,232 @@
 package com.example.learningwiremock.service;
 
-import com.example.learningwiremock.constants.MovieConstants;
+import com.example.learningwiremock.config.MoviesAppProperties;
 import com.example.learningwiremock.exception.MovieNotCreated;
 import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.CompactMovie;
 import com.example.learningwiremock.model.Movie;
-import lombok.extern.slf4j.Slf4j;
+import com.example.learningwiremock.model.MovieBatchResult;
+import com.example.learningwiremock.model.MovieIngestResult;
+import com.example.learningwiremock.model.MovieWriteResult;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
-
-@Slf4j
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Blocking facade over {@link ReactiveMovieClient}. Every method parks the calling thread until the
+ * exchange completes, so it must never be called from a Netty event loop or any other non-blocking
+ * thread; such calls fail with {@link IllegalStateException}.
+ */
 @Component
-public class MovieRestClient {
-    private WebClient webClient;
-    public MovieRestClient(WebClient webClient) {
-        this.webClient = webClient;
+public class MovieRestClient implements DisposableBean {
+    private final ReactiveMovieClient reactiveMovieClient;
+    private final int streamPrefetch;
+    private final ExecutorService blockingExecutor;
+
+    @FunctionalInterface
+    public interface BlockingCall<T> {
+        T call(MovieRestClient client) throws Throwable;
     }
 
-
-    public List<Movie> getAllMovies() throws MovieNotFoundException {
-       try {List<Movie> block = webClient.get()
-               .uri(MovieConstants.GET_ALL_MOVIES)
-               .retrieve().bodyToFlux(Movie.class)
-               .collect(Collectors.toList())
-               .block();
-
-           return block;
-       } catch (WebClientResponseException ex){
-           log.error("MovieNotFoundException in retrieveMovieById. Status code {} and the message is {}", ex.getStatusCode(), ex.getResponseBodyAsString());
-           throw new MovieNotFoundException(ex.getStatusText(), ex);
-
-       }
+    public MovieRestClient(ReactiveMovieClient reactiveMovieClient, MoviesAppProperties properties) {
+        this.reactiveMovieClient = reactiveMovieClient;
+        this.streamPrefetch = properties.getStream().getPrefetch();
+        this.blockingExecutor = blockingExecutor(properties.getBlocking());
     }
 
-    public Movie getMovieById(Long id) throws MovieNotFoundException {
+    @Override
+    public void destroy() {
+        blockingExecutor.shutdown();
+    }
 
+    /**
+     * Runs blocking calls on the {@code moviesapp.blocking} executor, a virtual thread per call when
+     * virtual threads are enabled, e.g. {@code submit(client -> client.getMovieById(id))}. Failures
+     * complete the future exceptionally with the checked exception as cause.
+     */
+    public <T> CompletableFuture<T> submit(BlockingCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call(this);
+            } catch (Throwable ex) {
+                throw new CompletionException(ex);
+            }
+        }, blockingExecutor);
+    }
 
-        try {
-            Movie block = webClient.get()
-                    .uri(MovieConstants.GET_MOVIE_BY_ID, id)
-                    .retrieve().bodyToMono(Movie.class)
-                    .block();
-            return block;
-        } catch (WebClientResponseException ex) {
-            log.error("MovieNotFoundException in retrieveMovieById. Status code {} and the message is {}", ex.getStatusCode(), ex.getResponseBodyAsString());
-            throw new MovieNotFoundException(ex.getStatusText(), ex);
+    /**
+     * Threads on which blocking calls handed over asynchronously run: a virtual thread per call
+     * when {@code moviesapp.blocking.virtual-threads} is set, so that a caller parked in
+     * {@code block()} does not hold an OS thread, otherwise a bounded platform pool. Kept out of the
+     * application context so that Boot's own task executor is still auto-configured.
+     */
+    private static ExecutorService blockingExecutor(MoviesAppProperties.Blocking blocking) {
+        if (blocking.isVirtualThreads()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("movies-virtual-", 0).factory());
         }
+        return Executors.newFixedThreadPool(blocking.getPlatformThreads(),
+                Thread.ofPlatform().name("movies-blocking-", 0).daemon().factory());
+    }
 
+    /**
+     * The executor behind {@link #submit(BlockingCall)}, for callers that want to run their own
+     * blocking work next to the client calls.
+     */
+    public ExecutorService getBlockingExecutor() {
+        return blockingExecutor;
     }
 
-    public List<Movie> getMovieByName(String movieName) throws MovieNotFoundException {
 
+    public List<Movie> getAllMovies() throws MovieNotFoundException {
+        return block(reactiveMovieClient.getAllMovies().collectList(), MovieNotFoundException.class);
+    }
 
-        try {
-            List<Movie> movieName1 = webClient.get().uri(uriBuilder -> uriBuilder
-                            .path(MovieConstants.Get_MOVIE_BY_NAME)
-                            .queryParam("movie_name", movieName)
-                            .build())
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collect(Collectors.toList())
-                    .block();
+    public List<CompactMovie> getAllMoviesCompact() throws MovieNotFoundException {
+        return block(reactiveMovieClient.getAllMoviesCompact().collectList(), MovieNotFoundException.class);
+    }
 
-            return movieName1;
+    public Movie getMovieById(Long id) throws MovieNotFoundException {
+        return block(reactiveMovieClient.getMovieById(id), MovieNotFoundException.class);
+    }
 
-        } catch (WebClientResponseException ex) {
+    /**
+     * Fetches many movies concurrently; ids that fail are reported in
+     * {@link MovieBatchResult#getErrors()} rather than thrown.
+     */
+    public MovieBatchResult getMoviesByIds(Collection<Long> ids) {
+        requireBlockingAllowed();
+        return reactiveMovieClient.getMoviesByIds(ids).collectList().map(MovieBatchResult::of).block();
+    }
 
-            log.error("No movies with the name {} found", movieName);
-            throw new MovieNotFoundException(ex.getResponseBodyAsString(), ex);
-        }
+    public List<Movie> getMovieByName(String movieName) throws MovieNotFoundException {
+        return block(reactiveMovieClient.getMovieByName(movieName).collectList(), MovieNotFoundException.class);
     }
 
     public Movie createMovie(Movie movie) throws MovieNotCreated {
-        try {
-            return webClient.post()
-                    .uri(MovieConstants.CREATE_MOVIE)
-                    .bodyValue(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class).block();
-        } catch (WebClientResponseException ex) {
-            log.error("WebClientResponseException in createMovie. Status code {} and message is {} ",ex.getStatusCode().value(),ex.getResponseBodyAsString());
-            throw new MovieNotCreated(ex,ex.getResponseBodyAsString());
-        }
-
+        return block(reactiveMovieClient.createMovie(movie), MovieNotCreated.class);
     }
 
     public Movie updateMovie(Integer movieId, Movie movie) throws MovieNotCreated {
-        try {
-            return webClient.put()
-                    .uri(MovieConstants.UPDATE_MOVIE, movieId)
-                    .bodyValue(movie)
-                    .retrieve()
-                    .bodyToMono(Movie.class).block();
-        } catch (WebClientResponseException ex) {
-            log.error("Not able to update movie");
-            throw new MovieNotCreated(ex, ex.getResponseBodyAsString());
-        }
+        return block(reactiveMovieClient.updateMovie(movieId, movie), MovieNotCreated.class);
+    }
 
+    /**
+     * Creates or updates every movie with pipelined, batched writes, see
+     * {@link ReactiveMovieClient#ingestMovies}. Failed writes are reported in
+     * {@link MovieIngestResult#getFailures()}; {@link MovieIngestResult#throwIfFailed()} turns them
+     * into a {@link MovieNotCreated}.
+     */
+    public MovieIngestResult ingestMovies(Iterable<Movie> movies) {
+        requireBlockingAllowed();
+        return reactiveMovieClient.ingestMovies(Flux.fromIterable(movies)).collectList().map(MovieIngestResult::of).block();
     }
 
-    public String deleteMovie(Integer movieId) throws MovieNotCreated {
-        try {
-            return webClient.delete()
-                    .uri(MovieConstants.GET_MOVIE_BY_ID, movieId)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-        } catch (WebClientResponseException ex) {
-            log.error("Not able to update movie");
-            throw new MovieNotCreated(ex, ex.getResponseBodyAsString());
+    /**
+     * Streaming variant for large inputs: each outcome is handed to {@code consumer} as it arrives
+     * instead of being collected.
+     */
+    public void ingestMovies(Iterable<Movie> movies, Consumer<MovieWriteResult> consumer) {
+        requireBlockingAllowed();
+        try (Stream<MovieWriteResult> results = reactiveMovieClient.ingestMovies(Flux.fromIterable(movies)).toStream(streamPrefetch)) {
+            results.forEach(consumer);
         }
+    }
 
+    public String deleteMovie(Integer movieId) throws MovieNotCreated {
+        return block(reactiveMovieClient.deleteMovie(movieId), MovieNotCreated.class);
     }
 
     public List<Movie> getMovieByYear(Integer year) throws MovieNotFoundException {
+        return block(reactiveMovieClient.getMovieByYear(year).collectList(), MovieNotFoundException.class);
+    }
 
-        try {
-            return webClient.get().uri(uriBuilder -> uriBuilder
-                            .path(MovieConstants.GET_MOVIE_BY_YEAR)
-                            .queryParam("year", year)
-                            .build())
-                    .retrieve()
-                    .bodyToFlux(Movie.class)
-                    .collect(Collectors.toList())
-                    .block();
-        } catch (WebClientResponseException ex) {
-
-            log.error("No movies with the year {} found, and message is {}", year, ex.getResponseBodyAsString());
-            throw new MovieNotFoundException(ex);
-        }
+    public List<Movie> getMoviesByYearRange(int fromYear, int toYear) throws MovieNotFoundException {
+        return block(reactiveMovieClient.getMoviesByYearRange(fromYear, toYear).collectList(), MovieNotFoundException.class);
+    }
+
+    public List<Movie> getMoviesReleasedBetween(LocalDate from, LocalDate to) throws MovieNotFoundException {
+        return block(reactiveMovieClient.getMoviesReleasedBetween(from, to).collectList(), MovieNotFoundException.class);
     }
 
     public String deleteMovieByName(String movieName) throws MovieNotFoundException {
+        block(reactiveMovieClient.deleteMovieByName(movieName), MovieNotFoundException.class);
+        return "Movie Deleted Successfully";
+    }
+
+    /**
+     * Streaming variants of the list lookups. Movies are handed over as they are decoded and at most
+     * {@code moviesapp.stream.prefetch} of them are requested ahead of the consumer, so memory stays
+     * flat regardless of how many movies the service returns.
+     */
+    public void streamAllMovies(Consumer<Movie> consumer) throws MovieNotFoundException {
+        forEach(reactiveMovieClient.getAllMovies(), consumer, MovieNotFoundException.class);
+    }
+
+    public void streamMovieByName(String movieName, Consumer<Movie> consumer) throws MovieNotFoundException {
+        forEach(reactiveMovieClient.getMovieByName(movieName), consumer, MovieNotFoundException.class);
+    }
 
+    public void streamMovieByYear(Integer year, Consumer<Movie> consumer) throws MovieNotFoundException {
+        forEach(reactiveMovieClient.getMovieByYear(year), consumer, MovieNotFoundException.class);
+    }
+
+    /**
+     * Lazily pulls movies from the service as the returned stream is consumed. The stream must be
+     * closed to release the connection if it is not fully consumed; errors surface as unchecked
+     * exceptions wrapping {@link MovieNotFoundException}.
+     */
+    public Stream<Movie> streamAllMovies() {
+        requireBlockingAllowed();
+        return reactiveMovieClient.getAllMovies().toStream(streamPrefetch);
+    }
+
+    private <E extends Throwable> void forEach(Flux<Movie> movies, Consumer<Movie> consumer, Class<E> errorType) throws E {
+        requireBlockingAllowed();
+        try (Stream<Movie> stream = movies.toStream(streamPrefetch)) {
+            stream.forEach(consumer);
+        } catch (RuntimeException ex) {
+            throw rethrow(ex, errorType);
+        }
+    }
+
+    /**
+     * Blocks on the given publisher and rethrows the typed error signal as the checked exception
+     * the blocking API has always declared. Anything else propagates unchanged.
+     */
+    private static <T, E extends Throwable> T block(Mono<T> mono, Class<E> errorType) throws E {
+        requireBlockingAllowed();
         try {
-           webClient.delete().uri(uriBuilder -> uriBuilder
-                            .path(MovieConstants.Get_MOVIE_BY_NAME)
-                            .queryParam("movie_name", movieName)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Void.class)
-                    .block();
-        } catch (WebClientResponseException ex) {
-
-            log.error("Movie deleted with the name {}", movieName);
-            throw new MovieNotFoundException(ex.getResponseBodyAsString(), ex);
+            return mono.block();
+        } catch (RuntimeException ex) {
+            throw rethrow(ex, errorType);
         }
+    }
 
-        return "Movie Deleted Successfully";
+    private static <E extends Throwable> RuntimeException rethrow(RuntimeException ex, Class<E> errorType) throws E {
+        Throwable cause = Exceptions.unwrap(ex);
+        if (errorType.isInstance(cause)) {
+            throw errorType.cast(cause);
+        }
+        return ex;
+    }
+
+    private static void requireBlockingAllowed() {
+        if (Schedulers.isInNonBlockingThread()) {
+            throw new IllegalStateException("MovieRestClient blocks and cannot be used on the non-blocking thread "
+                    + Thread.currentThread().getName() + "; use ReactiveMovieClient instead");
+        }
     }
 }
@@ -0,0 +1,218 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.model.Movie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The catalogue as a compact binary file, read back through a memory-mapped {@link FileChannel}.
+ * <pre>
+ * header   magic "MVCS", version, saved-at millis, count, body length, CRC32C of the body
+ * index    count entries of id, year, release epoch day, name offset, cast offset; sorted by id
+ * strings  length-prefixed UTF-8, -1 for null
+ * </pre>
+ * Ids, years and release dates are read straight from the index; a name or cast is only decoded
+ * when it is asked for. A file with another magic, version, length or checksum is rejected.
+ */
+final class MovieSnapshot {
+    static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4D56_4353;
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 24;
+    private static final int ABSENT = Integer.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final Instant savedAt;
+    private final int size;
+
+    private MovieSnapshot(ByteBuffer buffer, Instant savedAt, int size) {
+        this.buffer = buffer;
+        this.savedAt = savedAt;
+        this.size = size;
+    }
+
+    /**
+     * Writes to a sibling temporary file first and moves it into place, so that a crash never
+     * leaves a half-written snapshot behind.
+     */
+    static void write(Path path, Collection<Movie> movies, Instant savedAt) throws IOException {
+        List<Movie> sorted = movies.stream()
+                .filter(movie -> movie.getMovie_id() != null)
+                .sorted(Comparator.comparing(Movie::getMovie_id))
+                .toList();
+        int stringsStart = HEADER_BYTES + sorted.size() * ENTRY_BYTES;
+        ByteBuffer strings = ByteBuffer.allocate(1024);
+        ByteBuffer index = ByteBuffer.allocate(sorted.size() * ENTRY_BYTES);
+        for (Movie movie : sorted) {
+            index.putLong(movie.getMovie_id())
+                    .putInt(movie.getYear() == null ? ABSENT : movie.getYear())
+                    .putInt(movie.getRelease_date() == null ? ABSENT : Math.toIntExact(movie.getRelease_date().toEpochDay()));
+            index.putInt(stringsStart + strings.position());
+            strings = putString(strings, movie.getName());
+            index.putInt(stringsStart + strings.position());
+            strings = putString(strings, movie.getCast());
+        }
+        index.flip();
+        strings.flip();
+        CRC32C checksum = new CRC32C();
+        checksum.update(index.duplicate());
+        checksum.update(strings.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putShort((short) VERSION)
+                .putShort((short) 0)
+                .putLong(savedAt.toEpochMilli())
+                .putInt(sorted.size())
+                .putInt(index.remaining() + strings.remaining())
+                .putLong(checksum.getValue())
+                .flip();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] parts = {header, index, strings};
+                long remaining = header.remaining() + index.remaining() + strings.remaining();
+                while (remaining > 0) {
+                    remaining -= channel.write(parts);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps the file and verifies it; the body is checksummed in one sequential pass, nothing is
+     * decoded.
+     */
+    static MovieSnapshot open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a movie catalogue snapshot: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a movie catalogue snapshot: " + path);
+        }
+        int version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalogue snapshot version " + version + " in " + path);
+        }
+        Instant savedAt = Instant.ofEpochMilli(buffer.getLong(8));
+        int size = buffer.getInt(16);
+        int bodyLength = buffer.getInt(20);
+        if (size < 0 || bodyLength != buffer.capacity() - HEADER_BYTES || (long) size * ENTRY_BYTES > bodyLength) {
+            throw new IOException("Truncated catalogue snapshot " + path);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_BYTES, bodyLength));
+        if (checksum.getValue() != buffer.getLong(24)) {
+            throw new IOException("Checksum mismatch in catalogue snapshot " + path);
+        }
+        return new MovieSnapshot(buffer, savedAt, size);
+    }
+
+    Instant savedAt() {
+        return savedAt;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int index) {
+        return buffer.getLong(entry(index));
+    }
+
+    Integer year(int index) {
+        int year = buffer.getInt(entry(index) + 8);
+        return year == ABSENT ? null : year;
+    }
+
+    LocalDate releaseDate(int index) {
+        int epochDay = buffer.getInt(entry(index) + 12);
+        return epochDay == ABSENT ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    String name(int index) {
+        return getString(buffer.getInt(entry(index) + 16));
+    }
+
+    Movie movie(int index) {
+        return new Movie(getString(buffer.getInt(entry(index) + 20)), id(index), name(index), releaseDate(index), year(index));
+    }
+
+    /**
+     * Position of {@code id} in the index, or a negative number when it is not in the snapshot.
+     */
+    int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = id(middle);
+            if (candidate < id) {
+                low = middle + 1;
+            } else if (candidate > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int entry(int index) {
+        return HEADER_BYTES + index * ENTRY_BYTES;
+    }
+
+    private String getString(int offset) {
+        int length = buffer.getInt(offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer putString(ByteBuffer strings, String value) {
+        byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + (bytes == null ? 0 : bytes.length);
+        if (strings.remaining() < needed) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(strings.capacity() * 2, strings.position() + needed));
+            strings = grown.put(strings.flip());
+        }
+        strings.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            strings.put(bytes);
+        }
+        return strings;
+    }
+
+    @Override
+    public String toString() {
+        return "MovieSnapshot of " + size + " movies saved at " + savedAt;
+    }
+}
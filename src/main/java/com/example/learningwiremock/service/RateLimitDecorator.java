@@ -0,0 +1,280 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.RateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps every endpoint under the movie service's quota with a token bucket of {@code rate} tokens
+ * a second and {@code burst} capacity, as configured under {@code moviesapp.rate-limit}. Each
+ * attempt, retries and hedges included, takes a token; a call that would wait longer than
+ * {@code max-wait}, or finds {@code max-queue} callers waiting already, fails at once with
+ * {@link RateLimitedException} instead of adding to the load.
+ * <p>
+ * The bucket follows the service's pushback: a 429 or 503 with {@code Retry-After} stops the
+ * endpoint until then, and a 429 also cuts the rate by {@code backoff-ratio}, which then recovers
+ * over time. A 429 then reaches the caller as {@link RateLimitedException}, which is not retried;
+ * with rate limiting off, answers pass through untouched and a 429 fails like any other status.
+ * <p>
+ * Meters, tagged by endpoint: {@code movies.client.ratelimit.requests} by {@code result}
+ * (immediate, delayed, rejected), {@code movies.client.ratelimit.pushback} by {@code status}, and
+ * the {@code movies.client.ratelimit.rate} gauge.
+ */
+@Slf4j
+@Component
+@Order(MovieCallDecorator.RATE_LIMIT_ORDER)
+public class RateLimitDecorator implements MovieCallDecorator {
+    private final MoviesAppProperties.RateLimit properties;
+    private final Map<MovieEndpoint, TokenBucket> buckets = new EnumMap<>(MovieEndpoint.class);
+
+    public RateLimitDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getRateLimit();
+        for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+            buckets.put(endpoint, new TokenBucket(endpoint, meterRegistry));
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        Mono<T> observed = call.onErrorMap(WebClientResponseException.class, ex -> onPushback(endpoint, ex));
+        TokenBucket bucket = buckets.get(endpoint);
+        return Mono.defer(() -> {
+            long waitNanos = bucket.reserve();
+            if (waitNanos < 0) {
+                return Mono.error(bucket.rejected());
+            }
+            if (waitNanos == 0) {
+                return observed;
+            }
+            return bucket.delay(waitNanos).then(observed);
+        });
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        Flux<T> observed = call.onErrorMap(WebClientResponseException.class, ex -> onPushback(endpoint, ex));
+        TokenBucket bucket = buckets.get(endpoint);
+        return Flux.defer(() -> {
+            long waitNanos = bucket.reserve();
+            if (waitNanos < 0) {
+                return Flux.error(bucket.rejected());
+            }
+            if (waitNanos == 0) {
+                return observed;
+            }
+            return bucket.delay(waitNanos).thenMany(observed);
+        });
+    }
+
+    /**
+     * Pauses the bucket for a 429 or a 503 with {@code Retry-After} and turns a 429 into
+     * {@link RateLimitedException}; other errors pass unchanged.
+     */
+    private Throwable onPushback(MovieEndpoint endpoint, WebClientResponseException ex) {
+        boolean tooManyRequests = ex.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        Duration retryAfter = retryAfter(ex.getHeaders());
+        if (tooManyRequests || (ex.getStatusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value() && retryAfter != null)) {
+            buckets.get(endpoint).pushback(ex.getStatusCode().value(), retryAfter, tooManyRequests);
+        }
+        if (!tooManyRequests) {
+            return ex;
+        }
+        return new RateLimitedException(endpoint, retryAfter == null ? Duration.ZERO : retryAfter,
+                "Rate limited by the movie service on " + endpoint, ex);
+    }
+
+    /**
+     * {@code Retry-After} as delay-seconds or an HTTP date, capped at {@code max-retry-after}; null
+     * when absent or unreadable.
+     */
+    private Duration retryAfter(HttpHeaders headers) {
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Duration retryAfter;
+        try {
+            retryAfter = Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                retryAfter = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            } catch (DateTimeParseException notDate) {
+                log.warn("Ignoring unreadable Retry-After: {}", value);
+                return null;
+            }
+        }
+        if (retryAfter.isNegative()) {
+            return Duration.ZERO;
+        }
+        return retryAfter.compareTo(properties.getMaxRetryAfter()) > 0 ? properties.getMaxRetryAfter() : retryAfter;
+    }
+
+    private class TokenBucket {
+        private final MovieEndpoint endpoint;
+        private final MoviesAppProperties.Bucket limits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter immediate;
+        private final Counter delayed;
+        private final Counter rejected;
+        private final Counter tooManyRequests;
+        private final Counter serviceUnavailable;
+        private final MeterRegistry meterRegistry;
+        private double rate;
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+        private long pausedUntilNanos = refilledAtNanos;
+
+        TokenBucket(MovieEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.limits = properties.bucketFor(endpoint);
+            this.meterRegistry = meterRegistry;
+            this.rate = limits.getRate();
+            this.tokens = limits.getBurst();
+            this.immediate = requests("immediate");
+            this.delayed = requests("delayed");
+            this.rejected = requests("rejected");
+            this.tooManyRequests = pushbacks(HttpStatus.TOO_MANY_REQUESTS);
+            this.serviceUnavailable = pushbacks(HttpStatus.SERVICE_UNAVAILABLE);
+            Gauge.builder("movies.client.ratelimit.rate", this, TokenBucket::currentRate)
+                    .description("Calls per second the endpoint is currently allowed")
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Takes a token and returns how long to wait before using it, or -1 when the wait would
+         * exceed {@code max-wait} or too many callers are waiting already.
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            refill(now);
+            long waitNanos = Math.max(0, pausedUntilNanos - now);
+            if (tokens < 1) {
+                waitNanos = Math.max(waitNanos, (long) ((1 - tokens) / rate * 1e9));
+            }
+            if (waitNanos == 0) {
+                tokens -= 1;
+                immediate.increment();
+                return 0;
+            }
+            if (waitNanos > properties.getMaxWait().toNanos() || waiting.get() >= properties.getMaxQueue()) {
+                rejected.increment();
+                return -1;
+            }
+            tokens -= 1;
+            delayed.increment();
+            return waitNanos;
+        }
+
+        /**
+         * Waits for a reserved token; a caller that gives up before then hands the token back.
+         */
+        Mono<Long> delay(long waitNanos) {
+            AtomicBoolean done = new AtomicBoolean();
+            waiting.incrementAndGet();
+            return Mono.delay(Duration.ofNanos(waitNanos))
+                    .doOnCancel(() -> {
+                        if (done.compareAndSet(false, true)) {
+                            refund();
+                        }
+                    })
+                    .doFinally(signal -> {
+                        done.set(true);
+                        waiting.decrementAndGet();
+                    });
+        }
+
+        synchronized void pushback(int status, Duration retryAfter, boolean reduceRate) {
+            long now = System.nanoTime();
+            refill(now);
+            if (retryAfter != null) {
+                pausedUntilNanos = Math.max(pausedUntilNanos, now + retryAfter.toNanos());
+            }
+            if (reduceRate) {
+                rate = Math.max(limits.getRate() * properties.getMinRateRatio(), rate * properties.getBackoffRatio());
+                tokens = Math.min(tokens, 0);
+            }
+            (status == HttpStatus.TOO_MANY_REQUESTS.value() ? tooManyRequests : serviceUnavailable).increment();
+            log.warn("{} pushed back with {}; rate now {}/s{}", endpoint, status, String.format("%.1f", rate),
+                    retryAfter == null ? "" : ", paused for " + retryAfter.toMillis() + "ms");
+        }
+
+        RateLimitedException rejected() {
+            Duration retryAfter;
+            synchronized (this) {
+                long now = System.nanoTime();
+                retryAfter = Duration.ofNanos(Math.max(pausedUntilNanos - now, tokens < 1 ? (long) ((1 - tokens) / rate * 1e9) : 0));
+            }
+            return new RateLimitedException(endpoint, retryAfter,
+                    "Client-side rate limit reached for " + endpoint + ", retry in " + retryAfter.toMillis() + "ms", null);
+        }
+
+        private synchronized void refund() {
+            tokens = Math.min(limits.getBurst(), tokens + 1);
+        }
+
+        private synchronized double currentRate() {
+            refill(System.nanoTime());
+            return rate;
+        }
+
+        /**
+         * Adds the tokens earned since the last refill and lets a reduced rate recover by
+         * {@code recovery-per-second} of the configured rate every second.
+         */
+        private void refill(long now) {
+            double seconds = (now - refilledAtNanos) / 1e9;
+            if (seconds <= 0) {
+                return;
+            }
+            refilledAtNanos = now;
+            if (now - pausedUntilNanos < 0) {
+                return;
+            }
+            tokens = Math.min(limits.getBurst(), tokens + seconds * rate);
+            rate = Math.min(limits.getRate(), rate + seconds * properties.getRecoveryPerSecond() * limits.getRate());
+        }
+
+        private Counter pushbacks(HttpStatus status) {
+            return Counter.builder("movies.client.ratelimit.pushback")
+                    .description("429 and 503 answers that slowed the endpoint down")
+                    .tag("endpoint", endpoint.name())
+                    .tag("status", String.valueOf(status.value()))
+                    .register(meterRegistry);
+        }
+
+        private Counter requests(String result) {
+            return Counter.builder("movies.client.ratelimit.requests")
+                    .description("Calls let through at once, after waiting for a token, or rejected")
+                    .tag("endpoint", endpoint.name())
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieConstants;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.CompactMovie;
+import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.model.MovieLookup;
+import com.example.learningwiremock.model.MovieWriteResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link MovieRestClient}. Nothing in here blocks; failures are
+ * signalled as {@link MovieNotFoundException} or {@link MovieNotCreated} through {@code onError}.
+ * <p>
+ * List endpoints are decoded element by element as the body arrives, whether the service answers
+ * with a JSON array or with NDJSON, and only as fast as the subscriber requests.
+ * <p>
+ * With {@code moviesapp.list-cache.enabled} getAllMovies and getMovieByYear answers are cached and
+ * served stale while they are revalidated or the service is failing, see {@link MovieListCache}.
+ * <p>
+ * Identical id, name and year lookups in flight at the same time share one request, see
+ * {@link SingleFlight}.
+ * <p>
+ * With {@code moviesapp.catalogue.enabled} name and year lookups are answered from a local,
+ * indexed copy of the catalogue while it is fresh enough, see {@link MovieCatalogue}.
+ * <p>
+ * Every HTTP exchange is wrapped by the {@link MovieCallDecorator} beans before its errors are
+ * mapped, so policies such as retries see the raw WebClient exceptions.
+ */
+@Slf4j
+@Component
+public class ReactiveMovieClient implements DisposableBean {
+    private static final MediaType[] STREAMING_TYPES = {MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON};
+
+    private final WebClient webClient;
+    private final MovieCache movieCache;
+    private final MovieListCache listCache;
+    private final MovieCatalogue movieCatalogue;
+    private final CatalogueSync catalogueSync;
+    private final SingleFlight singleFlight;
+    private final MoviesAppProperties.Batch batch;
+    private final MoviesAppProperties.Ingest ingest;
+    private final List<MovieCallDecorator> decorators;
+
+    public ReactiveMovieClient(WebClient webClient, MoviesAppProperties properties, MeterRegistry meterRegistry,
+                               ObjectProvider<MovieCallDecorator> decorators) {
+        this.webClient = webClient;
+        this.batch = properties.getBatch();
+        this.ingest = properties.getIngest();
+        List<MovieCallDecorator> innermostFirst = new ArrayList<>(decorators.orderedStream().toList());
+        Collections.reverse(innermostFirst);
+        this.decorators = List.copyOf(innermostFirst);
+        this.singleFlight = new SingleFlight(properties.getSingleFlight(), meterRegistry);
+        this.movieCache = properties.getCache().isEnabled()
+                ? new MovieCache(this::fetchMovieById, properties.getCache(), meterRegistry)
+                : null;
+        this.listCache = properties.getListCache().isEnabled()
+                ? new MovieListCache(properties.getListCache(), meterRegistry)
+                : null;
+        this.catalogueSync = properties.getSync().isEnabled()
+                ? new CatalogueSync(properties.getSync(), meterRegistry)
+                : null;
+        this.movieCatalogue = properties.getCatalogue().isEnabled()
+                ? new MovieCatalogue(this::fetchAllMovies, properties.getCatalogue(), meterRegistry)
+                : null;
+    }
+
+    @Override
+    public void destroy() {
+        if (movieCatalogue != null) {
+            movieCatalogue.close();
+        }
+    }
+
+    public Flux<Movie> getAllMovies() {
+        Flux<Movie> movies = movieCatalogue == null ? fetchAllMovies() : movieCatalogue.capture(fetchAllMovies());
+        return listCache == null ? movies : listCache.get(MovieEndpoint.GET_ALL_MOVIES, "all", () -> movies);
+    }
+
+    private Flux<Movie> fetchAllMovies() {
+        if (catalogueSync != null) {
+            return fetchAllMoviesConditionally();
+        }
+        return call(MovieEndpoint.GET_ALL_MOVIES, webClient.get()
+                .uri(MovieConstants.GET_ALL_MOVIES)
+                .accept(STREAMING_TYPES)
+                .retrieve().bodyToFlux(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("MovieNotFoundException in getAllMovies. Status code {} and the message is {}", ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getStatusText(), ex);
+                });
+    }
+
+    /**
+     * {@code getAllMovies} revalidated against the last catalogue received, see {@link CatalogueSync}.
+     * The whole catalogue is buffered, so movies are only emitted once the response is complete.
+     */
+    private Flux<Movie> fetchAllMoviesConditionally() {
+        return Mono.defer(() -> {
+                    CatalogueSync.Snapshot last = catalogueSync.last();
+                    String since = catalogueSync.deltaSince(last);
+                    boolean isDelta = since != null;
+                    return call(MovieEndpoint.GET_ALL_MOVIES, webClient.get()
+                            .uri(uriBuilder -> isDelta
+                                    ? uriBuilder.path(MovieConstants.GET_ALL_MOVIES).queryParam(catalogueSync.deltaParameter(), since).build()
+                                    : uriBuilder.path(MovieConstants.GET_ALL_MOVIES).build())
+                            .accept(MediaType.APPLICATION_JSON)
+                            .headers(headers -> catalogueSync.addValidators(headers, last, isDelta))
+                            .exchangeToMono(response -> catalogueSync.apply(response, last, isDelta)))
+                            .onErrorResume(WebClientResponseException.BadRequest.class, ex -> {
+                                if (!isDelta) {
+                                    return Mono.error(ex);
+                                }
+                                log.warn("Delta sync of getAllMovies rejected, falling back to full responses: {}", ex.getResponseBodyAsString());
+                                catalogueSync.deltaRejected();
+                                return fetchAllMoviesConditionally().collectList();
+                            });
+                })
+                .flatMapIterable(movies -> movies)
+                .map(movie -> movie.toBuilder().build())
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("MovieNotFoundException in getAllMovies. Status code {} and the message is {}", ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getStatusText(), ex);
+                });
+    }
+
+    /**
+     * {@link #getAllMovies()} decoded into {@link CompactMovie}, for callers that hold large parts of
+     * the catalogue in memory.
+     */
+    public Flux<CompactMovie> getAllMoviesCompact() {
+        return call(MovieEndpoint.GET_ALL_MOVIES, webClient.get()
+                .uri(MovieConstants.GET_ALL_MOVIES)
+                .accept(STREAMING_TYPES)
+                .retrieve().bodyToFlux(CompactMovie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("MovieNotFoundException in getAllMoviesCompact. Status code {} and the message is {}", ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getStatusText(), ex);
+                });
+    }
+
+    public Mono<Movie> getMovieById(Long id) {
+        return movieCache == null ? fetchMovieById(id) : movieCache.get(id);
+    }
+
+    public Flux<MovieLookup> getMoviesByIds(Collection<Long> ids) {
+        return getMoviesByIds(ids, batch.isPreserveOrder());
+    }
+
+    /**
+     * Looks up every distinct id with at most {@code moviesapp.batch.concurrency} requests in flight.
+     * A failing id yields a failed {@link MovieLookup} instead of failing the whole batch.
+     */
+    public Flux<MovieLookup> getMoviesByIds(Collection<Long> ids, boolean preserveOrder) {
+        Flux<Long> distinctIds = Flux.fromIterable(ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        return preserveOrder
+                ? distinctIds.flatMapSequential(this::lookup, batch.getConcurrency())
+                : distinctIds.flatMap(this::lookup, batch.getConcurrency());
+    }
+
+    private Mono<MovieLookup> lookup(Long id) {
+        return getMovieById(id)
+                .map(movie -> MovieLookup.found(id, movie))
+                .switchIfEmpty(Mono.fromSupplier(() -> MovieLookup.failed(id,
+                        new MovieNotFoundException(new NoSuchElementException("No movie returned for id " + id)))))
+                .onErrorResume(ex -> Mono.just(MovieLookup.failed(id, ex)));
+    }
+
+    private Mono<Movie> fetchMovieById(Long id) {
+        Function<UriBuilder, URI> uri = uriBuilder -> uriBuilder.path(MovieConstants.GET_MOVIE_BY_ID).build(id);
+        return singleFlight.share(MovieEndpoint.GET_MOVIE_BY_ID, uri, call(MovieEndpoint.GET_MOVIE_BY_ID, webClient.get()
+                .uri(uri)
+                .retrieve().bodyToMono(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("MovieNotFoundException in getMovieById for id {}. Status code {} and the message is {}", id, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getStatusText(), ex);
+                }));
+    }
+
+    public Flux<Movie> getMovieByName(String movieName) {
+        return movieCatalogue == null
+                ? fetchMovieByName(movieName)
+                : movieCatalogue.findByName(movieName).switchIfEmpty(fetchMovieByName(movieName));
+    }
+
+    private Flux<Movie> fetchMovieByName(String movieName) {
+        Function<UriBuilder, URI> uri = uriBuilder -> uriBuilder
+                .path(MovieConstants.Get_MOVIE_BY_NAME)
+                .queryParam("movie_name", movieName)
+                .build();
+        return singleFlight.share(MovieEndpoint.GET_MOVIE_BY_NAME, uri, call(MovieEndpoint.GET_MOVIE_BY_NAME, webClient.get()
+                .uri(uri)
+                .accept(STREAMING_TYPES)
+                .retrieve()
+                .bodyToFlux(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("No movies with the name {} found. Status code {} and the message is {}", movieName, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getResponseBodyAsString(), ex);
+                }));
+    }
+
+    public Mono<Movie> createMovie(Movie movie) {
+        return call(MovieEndpoint.CREATE_MOVIE, webClient.post()
+                .uri(MovieConstants.CREATE_MOVIE)
+                .bodyValue(movie)
+                .retrieve()
+                .bodyToMono(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("WebClientResponseException in createMovie. Status code {} and message is {} ", ex.getStatusCode().value(), ex.getResponseBodyAsString());
+                    return new MovieNotCreated(ex, ex.getResponseBodyAsString());
+                })
+                .doOnNext(this::cachePut);
+    }
+
+    /**
+     * Writes every movie, creating those without an id and updating the others. Movies are gathered
+     * into batches of {@code moviesapp.ingest.batch-size}, or whatever arrived within
+     * {@code batch-window}, and the writes of a batch are pipelined with at most
+     * {@code concurrency} in flight. The next batch is only requested from {@code movies} once the
+     * current one has been written, so a fast producer is held back rather than buffered.
+     * <p>
+     * Emits one {@link MovieWriteResult} per movie, in input order; a failed write is reported with
+     * its {@link MovieNotCreated} instead of failing the ingest.
+     */
+    public Flux<MovieWriteResult> ingestMovies(Publisher<Movie> movies) {
+        return Flux.from(movies)
+                .index()
+                // fair backpressure: a window only requests movies while it is being collected
+                .windowTimeout(ingest.getBatchSize(), ingest.getBatchWindow(), true)
+                .concatMap(window -> window.collectList()
+                        .flatMapMany(batch -> Flux.fromIterable(batch)
+                                .flatMapSequential(item -> write(item.getT1(), item.getT2()), ingest.getConcurrency())), 0);
+    }
+
+    private Mono<MovieWriteResult> write(long index, Movie movie) {
+        return Mono.defer(() -> movie.getMovie_id() == null
+                        ? createMovie(movie)
+                        : updateMovie(Math.toIntExact(movie.getMovie_id()), movie))
+                .map(written -> MovieWriteResult.written(index, movie, written))
+                .switchIfEmpty(Mono.fromSupplier(() -> MovieWriteResult.failed(index, movie,
+                        new MovieNotCreated(new NoSuchElementException("No movie returned for " + movie.getName())))))
+                .onErrorResume(ex -> Mono.just(MovieWriteResult.failed(index, movie,
+                        ex instanceof MovieNotCreated notCreated ? notCreated : new MovieNotCreated(ex))));
+    }
+
+    public Mono<Movie> updateMovie(Integer movieId, Movie movie) {
+        return call(MovieEndpoint.UPDATE_MOVIE, webClient.put()
+                .uri(MovieConstants.UPDATE_MOVIE, movieId)
+                .bodyValue(movie)
+                .retrieve()
+                .bodyToMono(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("Not able to update movie {}. Status code {} and the message is {}", movieId, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotCreated(ex, ex.getResponseBodyAsString());
+                })
+                .doOnNext(this::cachePut)
+                .doOnError(ex -> cacheInvalidate(movieId));
+    }
+
+    public Mono<String> deleteMovie(Integer movieId) {
+        return call(MovieEndpoint.DELETE_MOVIE, webClient.delete()
+                .uri(MovieConstants.GET_MOVIE_BY_ID, movieId)
+                .retrieve()
+                .bodyToMono(String.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("Not able to delete movie {}. Status code {} and the message is {}", movieId, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotCreated(ex, ex.getResponseBodyAsString());
+                })
+                // invalidated before the outcome is handed on, so that a caller's next lookup misses
+                .doOnSuccess(deleted -> {
+                    cacheInvalidate(movieId);
+                    if (movieCatalogue != null) {
+                        movieCatalogue.remove(movieId.longValue());
+                    }
+                    if (listCache != null) {
+                        listCache.invalidateAll();
+                    }
+                })
+                .doOnError(ex -> cacheInvalidate(movieId));
+    }
+
+    public Flux<Movie> getMovieByYear(Integer year) {
+        Flux<Movie> remote = listCache == null
+                ? fetchMovieByYear(year)
+                : listCache.get(MovieEndpoint.GET_MOVIE_BY_YEAR, "year=" + year, () -> fetchMovieByYear(year));
+        return movieCatalogue == null
+                ? remote
+                : movieCatalogue.findByYear(year, year).switchIfEmpty(remote);
+    }
+
+    /**
+     * Movies of the years from {@code fromYear} to {@code toYear} inclusive, in year order. Without a
+     * usable local catalogue every year is looked up in turn and years the service answers with 404
+     * are skipped.
+     */
+    public Flux<Movie> getMoviesByYearRange(int fromYear, int toYear) {
+        Flux<Movie> remote = Flux.range(fromYear, Math.max(0, toYear - fromYear + 1))
+                .concatMap(year -> fetchMovieByYear(year)
+                        .onErrorResume(ex -> ex.getCause() instanceof WebClientResponseException.NotFound, ex -> Flux.empty()));
+        return movieCatalogue == null
+                ? remote
+                : movieCatalogue.findByYear(fromYear, toYear).switchIfEmpty(remote);
+    }
+
+    /**
+     * Movies released between {@code from} and {@code to} inclusive, in release order when served
+     * from the local catalogue and in year order otherwise.
+     */
+    public Flux<Movie> getMoviesReleasedBetween(LocalDate from, LocalDate to) {
+        Flux<Movie> remote = getMoviesByYearRange(from.getYear(), to.getYear())
+                .filter(movie -> movie.getRelease_date() != null
+                        && !movie.getRelease_date().isBefore(from) && !movie.getRelease_date().isAfter(to));
+        return movieCatalogue == null
+                ? remote
+                : movieCatalogue.findReleasedBetween(from, to).switchIfEmpty(remote);
+    }
+
+    private Flux<Movie> fetchMovieByYear(Integer year) {
+        Function<UriBuilder, URI> uri = uriBuilder -> uriBuilder
+                .path(MovieConstants.GET_MOVIE_BY_YEAR)
+                .queryParam("year", year)
+                .build();
+        return singleFlight.share(MovieEndpoint.GET_MOVIE_BY_YEAR, uri, call(MovieEndpoint.GET_MOVIE_BY_YEAR, webClient.get()
+                .uri(uri)
+                .accept(STREAMING_TYPES)
+                .retrieve()
+                .bodyToFlux(Movie.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("No movies with the year {} found. Status code {} and the message is {}", year, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex);
+                }));
+    }
+
+    public Mono<Void> deleteMovieByName(String movieName) {
+        return call(MovieEndpoint.DELETE_MOVIE_BY_NAME, webClient.delete().uri(uriBuilder -> uriBuilder
+                        .path(MovieConstants.Get_MOVIE_BY_NAME)
+                        .queryParam("movie_name", movieName)
+                        .build())
+                .retrieve()
+                .bodyToMono(Void.class))
+                .onErrorMap(WebClientResponseException.class, ex -> {
+                    log.error("Not able to delete movie with the name {}. Status code {} and the message is {}", movieName, ex.getStatusCode(), ex.getResponseBodyAsString());
+                    return new MovieNotFoundException(ex.getResponseBodyAsString(), ex);
+                })
+                .doOnSuccess(done -> {
+                    if (movieCatalogue != null) {
+                        movieCatalogue.removeByName(movieName);
+                    }
+                    if (listCache != null) {
+                        listCache.invalidateAll();
+                    }
+                });
+    }
+
+    private <T> Mono<T> call(MovieEndpoint endpoint, Mono<T> request) {
+        Mono<T> decorated = request;
+        for (MovieCallDecorator decorator : decorators) {
+            decorated = decorator.decorate(endpoint, decorated);
+        }
+        return decorated;
+    }
+
+    private <T> Flux<T> call(MovieEndpoint endpoint, Flux<T> request) {
+        Flux<T> decorated = request;
+        for (MovieCallDecorator decorator : decorators) {
+            decorated = decorator.decorate(endpoint, decorated);
+        }
+        return decorated;
+    }
+
+    private void cachePut(Movie movie) {
+        if (movieCache != null) {
+            movieCache.put(movie);
+        }
+        if (movieCatalogue != null) {
+            movieCatalogue.upsert(movie);
+        }
+        if (listCache != null) {
+            listCache.invalidateAll();
+        }
+    }
+
+    private void cacheInvalidate(Integer movieId) {
+        if (movieCache != null) {
+            movieCache.invalidate(movieId.longValue());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.learningwiremock.service;
+
+import reactor.util.context.ContextView;
+
+import java.util.Optional;
+
+/**
+ * Timestamps of one exchange with the movie service, put in the Reactor context of every attempt
+ * by {@link RequestTimingDecorator} and filled in by the Reactor Netty hooks and the body filter
+ * installed in {@code MoviesAppConfig}:
+ * <pre>
+ * acquire  subscribed          -> connection ready, request about to be written
+ * send     request written     -> request fully sent
+ * server   request sent        -> response headers received (time to first byte)
+ * body     headers received    -> last byte of the body received, decoding as it arrives
+ * decode   last byte received  -> last movie decoded and handed on
+ * </pre>
+ * A new connection's DNS lookup, TCP connect and TLS handshake fall in {@code acquire}; Reactor
+ * Netty's own {@code reactor.netty.http.client.*} meters break them down further.
+ */
+public final class RequestPhases {
+    private static final Object KEY = RequestPhases.class;
+
+    final long startNanos = System.nanoTime();
+    volatile long connectedNanos;
+    volatile long sentNanos;
+    volatile long headersNanos;
+    volatile long bodyNanos;
+    volatile String request;
+
+    RequestPhases() {
+    }
+
+    public static Optional<RequestPhases> from(ContextView context) {
+        return context.getOrEmpty(KEY);
+    }
+
+    static Object key() {
+        return KEY;
+    }
+
+    public void connected(String request) {
+        this.request = request;
+        connectedNanos = System.nanoTime();
+    }
+
+    public void sent() {
+        sentNanos = System.nanoTime();
+    }
+
+    public void headersReceived() {
+        headersNanos = System.nanoTime();
+    }
+
+    public void bodyReceived() {
+        bodyNanos = System.nanoTime();
+    }
+}
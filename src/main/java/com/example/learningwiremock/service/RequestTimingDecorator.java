@@ -0,0 +1,127 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Innermost decorator: breaks every attempt down into the {@link RequestPhases} and records each
+ * phase reached in the {@code movies.client.request.phases} timer, tagged by endpoint and phase,
+ * with p50/p95/p99 and a latency histogram. An attempt slower than
+ * {@code moviesapp.timings.slow-request-threshold} is logged with its breakdown.
+ */
+@Slf4j
+@Component
+@Order(MovieCallDecorator.TIMING_ORDER)
+public class RequestTimingDecorator implements MovieCallDecorator {
+    private static final String[] PHASES = {"acquire", "send", "server", "body", "decode"};
+
+    private final MoviesAppProperties.Timings properties;
+    private final Map<MovieEndpoint, Timer[]> timers = new EnumMap<>(MovieEndpoint.class);
+
+    public RequestTimingDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getTimings();
+        if (this.properties.isEnabled()) {
+            for (MovieEndpoint endpoint : MovieEndpoint.values()) {
+                timers.put(endpoint, Arrays.stream(PHASES)
+                        .map(phase -> timer(meterRegistry, endpoint, phase))
+                        .toArray(Timer[]::new));
+            }
+        }
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            RequestPhases phases = new RequestPhases();
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (done.compareAndSet(false, true)) {
+                    record(endpoint, phases, System.nanoTime());
+                }
+            };
+            return call.doOnSuccess(result -> finish.run())
+                    .doOnError(ex -> finish.run())
+                    .doOnCancel(finish)
+                    .contextWrite(context -> context.put(RequestPhases.key(), phases));
+        });
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            RequestPhases phases = new RequestPhases();
+            AtomicBoolean done = new AtomicBoolean();
+            Runnable finish = () -> {
+                if (done.compareAndSet(false, true)) {
+                    record(endpoint, phases, System.nanoTime());
+                }
+            };
+            return call.doOnTerminate(finish)
+                    .doOnCancel(finish)
+                    .contextWrite(context -> context.put(RequestPhases.key(), phases));
+        });
+    }
+
+    /**
+     * Records the phases that completed; an attempt that failed or was cancelled midway only
+     * records those before the failure.
+     */
+    private void record(MovieEndpoint endpoint, RequestPhases phases, long endNanos) {
+        long[] marks = {phases.startNanos, phases.connectedNanos, phases.sentNanos, phases.headersNanos,
+                phases.bodyNanos, endNanos};
+        long[] durations = new long[PHASES.length];
+        int reached = 0;
+        long previous = marks[0];
+        while (reached < PHASES.length && marks[reached + 1] != 0) {
+            long mark = marks[reached + 1];
+            durations[reached++] = Math.max(0, mark - previous);
+            previous = Math.max(previous, mark);
+        }
+        Timer[] endpointTimers = timers.get(endpoint);
+        for (int i = 0; i < reached; i++) {
+            endpointTimers[i].record(durations[i], TimeUnit.NANOSECONDS);
+        }
+
+        Duration threshold = properties.getSlowRequestThreshold();
+        long totalNanos = endNanos - phases.startNanos;
+        if (!threshold.isZero() && totalNanos >= threshold.toNanos()) {
+            StringJoiner breakdown = new StringJoiner(" ");
+            for (int i = 0; i < reached; i++) {
+                breakdown.add(PHASES[i] + "=" + TimeUnit.NANOSECONDS.toMillis(durations[i]) + "ms");
+            }
+            log.warn("Slow {} {} took {}ms: {}", endpoint, phases.request == null ? "(not sent)" : phases.request,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), breakdown);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, MovieEndpoint endpoint, String phase) {
+        return Timer.builder("movies.client.request.phases")
+                .description("Time each attempt spends acquiring a connection, sending, waiting for the server, receiving and decoding")
+                .tag("endpoint", endpoint.name())
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.handler.timeout.WriteTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retries with jittered exponential backoff, a circuit breaker and a bulkhead per endpoint, as
+ * configured under {@code moviesapp.resilience}. Every attempt goes through the circuit breaker
+ * and the bulkhead. Only server errors and I/O failures are retried, and only for idempotent
+ * endpoints; a list is never retried once it has started emitting movies.
+ */
+@Slf4j
+@Component
+@Order(MovieCallDecorator.RESILIENCE_ORDER)
+public class ResilienceDecorator implements MovieCallDecorator {
+    private final MoviesAppProperties.Resilience properties;
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+    public ResilienceDecorator(MoviesAppProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getResilience();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    @Override
+    public <T> Mono<T> decorate(MovieEndpoint endpoint, Mono<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        Mono<T> guarded = call
+                .transformDeferred(BulkheadOperator.of(bulkhead(endpoint)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(endpoint)));
+        return maxRetries(endpoint) > 0 ? guarded.retryWhen(retrySpec(endpoint)) : guarded;
+    }
+
+    @Override
+    public <T> Flux<T> decorate(MovieEndpoint endpoint, Flux<T> call) {
+        if (!properties.isEnabled()) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            Flux<T> guarded = call
+                    .doOnNext(item -> emitted.set(true))
+                    .transformDeferred(BulkheadOperator.of(bulkhead(endpoint)))
+                    .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(endpoint)));
+            return maxRetries(endpoint) > 0
+                    ? guarded.retryWhen(retrySpec(endpoint).filter(ex -> !emitted.get() && isRetryable(ex)))
+                    : guarded;
+        });
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        return circuitBreakerRegistry;
+    }
+
+    public BulkheadRegistry getBulkheadRegistry() {
+        return bulkheadRegistry;
+    }
+
+    private long maxRetries(MovieEndpoint endpoint) {
+        return endpoint.isIdempotent() ? Math.max(0, properties.policyFor(endpoint).getMaxAttempts() - 1) : 0;
+    }
+
+    private RetryBackoffSpec retrySpec(MovieEndpoint endpoint) {
+        MoviesAppProperties.Policy policy = properties.policyFor(endpoint);
+        return Retry.backoff(maxRetries(endpoint), policy.getInitialBackoff())
+                .maxBackoff(policy.getMaxBackoff())
+                .jitter(policy.getJitter())
+                .filter(ResilienceDecorator::isRetryable)
+                .doBeforeRetry(signal -> log.warn("Retrying {} after attempt {} failed: {}",
+                        endpoint, signal.totalRetries() + 1, signal.failure().toString()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private CircuitBreaker circuitBreaker(MovieEndpoint endpoint) {
+        return circuitBreakerRegistry.circuitBreaker(endpoint.name(), () -> {
+            MoviesAppProperties.Policy policy = properties.policyFor(endpoint);
+            return CircuitBreakerConfig.custom()
+                    .failureRateThreshold(policy.getFailureRateThreshold())
+                    .slidingWindowSize(policy.getSlidingWindowSize())
+                    .minimumNumberOfCalls(policy.getMinimumNumberOfCalls())
+                    .waitDurationInOpenState(policy.getWaitDurationInOpenState())
+                    .permittedNumberOfCallsInHalfOpenState(policy.getPermittedCallsInHalfOpenState())
+                    .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                    .recordException(ResilienceDecorator::isRetryable)
+                    .ignoreExceptions(BulkheadFullException.class)
+                    .build();
+        });
+    }
+
+    private Bulkhead bulkhead(MovieEndpoint endpoint) {
+        return bulkheadRegistry.bulkhead(endpoint.name(), () -> {
+            MoviesAppProperties.Policy policy = properties.policyFor(endpoint);
+            return BulkheadConfig.custom()
+                    .maxConcurrentCalls(policy.getMaxConcurrentCalls())
+                    .maxWaitDuration(policy.getMaxWaitForPermit())
+                    .build();
+        });
+    }
+
+    /**
+     * Failures that say nothing about the request itself: the service answered with a 5xx, or the
+     * exchange broke down (refused or dropped connection, read/write timeout).
+     */
+    static boolean isRetryable(Throwable ex) {
+        if (ex instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        return ex instanceof WebClientRequestException
+                || ex instanceof ReadTimeoutException
+                || ex instanceof WriteTimeoutException;
+    }
+}
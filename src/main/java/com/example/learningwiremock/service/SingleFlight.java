@@ -0,0 +1,142 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.DeadlineExceededException;
+import com.example.learningwiremock.model.Movie;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriBuilder;
+import org.springframework.web.util.UriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lets identical concurrent lookups share one upstream call. Calls are keyed by HTTP method and
+ * the URI their {@code uriBuilder} function produces, with query parameters sorted by name; a call
+ * arriving while another with the same key is in flight replays that call's movies instead of
+ * making its own request. Every subscriber gets its own copies of the movies.
+ * <p>
+ * A subscriber that cancels only detaches; the shared call is cancelled once all of them have.
+ * The shared call runs in the context of the caller that started it, {@link Deadline} included, so
+ * a caller only joins a call that will not give up before its own deadline and otherwise makes its
+ * own request.
+ * <p>
+ * {@code movies.client.singleflight.calls} counts calls tagged {@code role=leader} (made a
+ * request) or {@code role=follower} (shared one), and {@code movies.client.singleflight.collapse.ratio}
+ * is the share of followers.
+ */
+class SingleFlight {
+    private final MoviesAppProperties.SingleFlight properties;
+    private final UriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory();
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private final Map<MovieEndpoint, Counter> leaders = new EnumMap<>(MovieEndpoint.class);
+    private final Map<MovieEndpoint, Counter> followers = new EnumMap<>(MovieEndpoint.class);
+
+    SingleFlight(MoviesAppProperties.SingleFlight properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (MovieEndpoint endpoint : properties.getEndpoints()) {
+            leaders.put(endpoint, counter(meterRegistry, endpoint, "leader"));
+            followers.put(endpoint, counter(meterRegistry, endpoint, "follower"));
+            Gauge.builder("movies.client.singleflight.collapse.ratio", this, flight -> flight.collapseRatio(endpoint))
+                    .description("Share of calls answered by another caller's request")
+                    .tag("endpoint", endpoint.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    Mono<Movie> share(MovieEndpoint endpoint, Function<UriBuilder, URI> uri, Mono<Movie> call) {
+        return isShared(endpoint) ? share(endpoint, uri, call.flux()).next() : call;
+    }
+
+    Flux<Movie> share(MovieEndpoint endpoint, Function<UriBuilder, URI> uri, Flux<Movie> call) {
+        if (!isShared(endpoint)) {
+            return call;
+        }
+        String key = key(endpoint, uri.apply(uriBuilderFactory.builder()));
+        return Flux.deferContextual(context -> {
+            Deadline deadline = Deadline.from(context).orElse(null);
+            if (deadline != null && deadline.isExpired()) {
+                return Flux.error(() -> new DeadlineExceededException("Deadline exceeded before " + key + " was sent"));
+            }
+            AtomicReference<Flight> created = new AtomicReference<>();
+            Flight flight = flights.computeIfAbsent(key, k -> {
+                // removed before the outcome is replayed, so that a caller's next lookup makes a new request
+                Runnable land = () -> flights.remove(k, created.get());
+                created.set(new Flight(call.doOnTerminate(land)
+                        .doOnCancel(land)
+                        .replay()
+                        .refCount(), deadline));
+                return created.get();
+            });
+            if (flight != created.get() && !flight.outlives(deadline)) {
+                // the call in flight would give up before this caller has to
+                leaders.get(endpoint).increment();
+                return call;
+            }
+            (flight == created.get() ? leaders : followers).get(endpoint).increment();
+            Flux<Movie> copies = flight.movies().map(movie -> movie.toBuilder().build());
+            return deadline == null || flight == created.get()
+                    ? copies
+                    : deadline.bound(copies, () -> new DeadlineExceededException("Deadline exceeded waiting for " + key));
+        });
+    }
+
+    /**
+     * A shared call, run in the context of the caller that started it and so bound by its deadline.
+     */
+    private record Flight(Flux<Movie> movies, Deadline deadline) {
+        boolean outlives(Deadline follower) {
+            return deadline == null || (follower != null && follower.earliest(deadline) == follower);
+        }
+    }
+
+    private boolean isShared(MovieEndpoint endpoint) {
+        return properties.isEnabled() && endpoint.getMethod() == HttpMethod.GET && leaders.containsKey(endpoint);
+    }
+
+    private double collapseRatio(MovieEndpoint endpoint) {
+        double shared = followers.get(endpoint).count();
+        double total = shared + leaders.get(endpoint).count();
+        return total == 0 ? 0 : shared / total;
+    }
+
+    /**
+     * {@code GET /movieservice/v1/movieYear?year=2012}; parameters are stably sorted by name so
+     * that their order in the builder does not matter.
+     */
+    static String key(MovieEndpoint endpoint, URI uri) {
+        String query = !StringUtils.hasLength(uri.getRawQuery()) ? "" : Arrays.stream(uri.getRawQuery().split("&"))
+                .filter(parameter -> !parameter.isEmpty())
+                .sorted(Comparator.comparing(SingleFlight::parameterName))
+                .collect(Collectors.joining("&", "?", ""));
+        return endpoint.getMethod().name() + " " + StringUtils.cleanPath(uri.getRawPath()) + query;
+    }
+
+    private static String parameterName(String parameter) {
+        int separator = parameter.indexOf('=');
+        return separator < 0 ? parameter : parameter.substring(0, separator);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, MovieEndpoint endpoint, String role) {
+        return Counter.builder("movies.client.singleflight.calls")
+                .description("Calls that made their own request (leader) or shared one in flight (follower)")
+                .tag("endpoint", endpoint.name())
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+}
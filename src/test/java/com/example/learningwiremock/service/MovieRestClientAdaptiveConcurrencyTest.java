@@ -0,0 +1,95 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.ConcurrencyLimitExceededException;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.concurrency.enabled=true",
+        "moviesapp.concurrency.initial-limit=20",
+        "moviesapp.concurrency.max-queue=0"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientAdaptiveConcurrencyTest {
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieById_latencyDegrades_limitShrinksAndExcessIsShed() {
+
+        //given a healthy upstream
+        stubMovieById(5, 10);
+        AtomicInteger rejected = new AtomicInteger();
+        load(200, 10, rejected);
+        double limitBefore = limit();
+
+        //when its latency degrades and callers keep piling on
+        stubMovieById(200, 400);
+        load(200, 40, rejected);
+        double limitAfter = limit();
+
+        assertTrue("limit should shrink from " + limitBefore + " but was " + limitAfter, limitAfter < limitBefore);
+        assertTrue("callers beyond the limit should be shed", rejected.get() > 0);
+    }
+
+    private void stubMovieById(int lowerMillis, int upperMillis) {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withUniformRandomDelay(lowerMillis, upperMillis)));
+    }
+
+    private void load(int calls, int concurrency, AtomicInteger rejected) {
+        Flux.range(1, calls)
+                .flatMap(id -> reactiveMovieClient.getMovieById(id.longValue())
+                        .onErrorResume(ConcurrencyLimitExceededException.class, ex -> {
+                            rejected.incrementAndGet();
+                            return Mono.empty();
+                        }), concurrency)
+                .blockLast();
+    }
+
+    private double limit() {
+        return meterRegistry.get("movies.client.concurrency.limit").tag("endpoint", "GET_MOVIE_BY_ID").gauge().value();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091", "moviesapp.cache.enabled=true"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientCacheTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieById_secondCallServedFromCache() throws MovieNotFoundException {
+
+        //Given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+
+        movieRestClient.getMovieById(101L);
+        Movie cached = movieRestClient.getMovieById(101L);
+
+        assertEquals(Long.valueOf(101L), cached.getMovie_id());
+        verify(exactly(1), getRequestedFor(urlEqualTo("/movieservice/v1/movie/101")));
+    }
+
+    @Test
+    void getMovieById_concurrentMissesShareOneRequest() {
+
+        //Given a slow upstream
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(300)));
+
+        List<Movie> movies = Flux.range(0, 20)
+                .flatMap(i -> reactiveMovieClient.getMovieById(102L))
+                .collectList()
+                .block();
+
+        assertEquals(20, movies.size());
+        verify(exactly(1), getRequestedFor(urlEqualTo("/movieservice/v1/movie/102")));
+    }
+
+    @Test
+    void getMovieById_404IsNotCached() {
+
+        //Given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieById.json")
+                        .withTransformers("response-template")));
+
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieById(103L));
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieById(103L));
+
+        verify(exactly(2), getRequestedFor(urlEqualTo("/movieservice/v1/movie/103")));
+    }
+
+    @Test
+    void updateMovie_writesThrough_deleteMovie_invalidates() throws MovieNotCreated, MovieNotFoundException {
+
+        Integer movieId = 104;
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("updateMovie.json")
+                        .withTransformers("response-template")));
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+        stubFor(delete(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withBody("Movie Deleted Successfully")));
+
+        //update puts the returned movie into the cache
+        movieRestClient.updateMovie(movieId, new Movie("Anand", null, null, null, null));
+        movieRestClient.getMovieById(movieId.longValue());
+        verify(exactly(0), getRequestedFor(urlEqualTo("/movieservice/v1/movie/104")));
+
+        //delete evicts it again
+        movieRestClient.deleteMovie(movieId);
+        movieRestClient.getMovieById(movieId.longValue());
+        verify(exactly(1), getRequestedFor(urlEqualTo("/movieservice/v1/movie/104")));
+    }
+}
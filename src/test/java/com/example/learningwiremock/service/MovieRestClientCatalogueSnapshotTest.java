@@ -0,0 +1,147 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.catalogue.enabled=true",
+        "moviesapp.catalogue.refresh-interval=1h"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientCatalogueSnapshotTest {
+    @TempDir
+    static Path snapshotDirectory;
+
+    @DynamicPropertySource
+    static void snapshotPath(DynamicPropertyRegistry registry) {
+        registry.add("moviesapp.catalogue.snapshot-path", () -> snapshotDirectory.resolve("catalogue.bin").toString());
+    }
+
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    MoviesAppProperties properties;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void removeSnapshot() throws IOException {
+        Files.deleteIfExists(properties.getCatalogue().getSnapshotPath());
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+    }
+
+    @Test
+    void restart_servesLookupsFromSnapshotBeforeFirstLoad() throws MovieNotFoundException, IOException, InterruptedException {
+
+        //given a catalogue saved by a previous run
+        List<Movie> loaded = movieRestClient.getAllMovies();
+        Path snapshotPath = awaitSnapshot();
+
+        //when a new catalogue starts while the service hangs
+        try (MovieCatalogue restarted = new MovieCatalogue(Flux::never, properties.getCatalogue(), new SimpleMeterRegistry())) {
+
+            List<Movie> avengers = restarted.findByName("avengers").collectList().block(Duration.ofSeconds(1));
+            assertEquals(List.of(4L, 5L, 6L, 7L), avengers.stream().map(Movie::getMovie_id).toList());
+            assertEquals(loaded.stream().filter(movie -> movie.getMovie_id() == 4L).findFirst().orElseThrow(), avengers.get(0));
+            assertEquals(loaded.size(), restarted.findByYear(Integer.MIN_VALUE, Integer.MAX_VALUE).count().block().intValue());
+        }
+        assertTrue(Files.size(snapshotPath) > 0);
+    }
+
+    @Test
+    void corruptSnapshot_isRejected(@TempDir Path directory) throws MovieNotFoundException, IOException, InterruptedException {
+
+        //given a snapshot with one flipped byte
+        movieRestClient.getAllMovies();
+        byte[] bytes = Files.readAllBytes(awaitSnapshot());
+        bytes[bytes.length - 1] ^= 1;
+        Path corrupt = Files.write(directory.resolve("corrupt.bin"), bytes);
+
+        IOException ex = assertThrows(IOException.class, () -> MovieSnapshot.open(corrupt));
+        assertTrue(ex.getMessage().startsWith("Checksum mismatch"));
+
+        MoviesAppProperties.Catalogue catalogue = new MoviesAppProperties.Catalogue();
+        catalogue.setSnapshotPath(corrupt);
+        try (MovieCatalogue restarted = new MovieCatalogue(Flux::never, catalogue, new SimpleMeterRegistry())) {
+            assertEquals(0, restarted.findByName("avengers").count().block(Duration.ofSeconds(1)).intValue());
+        }
+    }
+
+    @Test
+    void staleSnapshot_isNotServed(@TempDir Path directory) throws MovieNotFoundException, IOException, InterruptedException {
+
+        //given a snapshot within snapshot-max-age but older than max-staleness
+        List<Movie> loaded = movieRestClient.getAllMovies();
+        Path old = directory.resolve("old.bin");
+        MovieSnapshot.write(old, loaded, Instant.now().minus(Duration.ofMinutes(10)));
+
+        MoviesAppProperties.Catalogue catalogue = new MoviesAppProperties.Catalogue();
+        catalogue.setSnapshotPath(old);
+        catalogue.setMaxStaleness(Duration.ofMinutes(5));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (MovieCatalogue restarted = new MovieCatalogue(Flux::never, catalogue, meterRegistry)) {
+            assertEquals(0, restarted.findByName("avengers").count().block(Duration.ofSeconds(1)).intValue());
+            assertTrue(meterRegistry.get("movies.catalogue.age").gauge().value() >= 600);
+        }
+    }
+
+    private Path awaitSnapshot() throws InterruptedException {
+        Path path = properties.getCatalogue().getSnapshotPath();
+        for (int i = 0; i < 50 && !Files.exists(path); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue("snapshot should have been saved to " + path, Files.exists(path));
+        return path;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.catalogue.enabled=true",
+        "moviesapp.catalogue.refresh-interval=1h"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientCatalogueTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void loadCatalogue() throws MovieNotFoundException {
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+        movieRestClient.getAllMovies();
+    }
+
+    @Test
+    void getMovieByName_servedFromCatalogue() throws MovieNotFoundException {
+
+        List<Movie> movies = movieRestClient.getMovieByName("avengers");
+
+        assertEquals(List.of(4L, 5L, 6L, 7L), movies.stream().map(Movie::getMovie_id).toList());
+        //every word of the query is matched as a prefix
+        assertEquals("The Dark Knight Rises", movieRestClient.getMovieByName("dark ris").get(0).getName());
+        verify(exactly(0), getRequestedFor(urlPathEqualTo(Get_MOVIE_BY_NAME)));
+    }
+
+    @Test
+    void getMovieByName_localMiss_askService() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(urlPathEqualTo(Get_MOVIE_BY_NAME))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieByYear.json")
+                        .withTransformers("response-template")));
+
+        movieRestClient.getMovieByName("Inception");
+
+        verify(exactly(1), getRequestedFor(urlEqualTo(Get_MOVIE_BY_NAME + "?movie_name=Inception")));
+    }
+
+    @Test
+    void getMovieByYear_andRanges_servedFromCatalogue() throws MovieNotFoundException {
+
+        assertEquals(List.of(3L, 4L), ids(movieRestClient.getMovieByYear(2012)));
+        assertEquals(List.of(1L, 10L, 2L), ids(movieRestClient.getMoviesByYearRange(2005, 2008)));
+        assertEquals(List.of(4L, 3L), ids(movieRestClient.getMoviesReleasedBetween(
+                LocalDate.of(2012, 1, 1), LocalDate.of(2012, 12, 31))));
+        verify(exactly(0), getRequestedFor(urlPathEqualTo(GET_MOVIE_BY_YEAR)));
+    }
+
+    @Test
+    void createMovie_appliedToCatalogue() throws MovieNotCreated, MovieNotFoundException {
+
+        //given
+        stubFor(post(urlPathEqualTo(CREATE_MOVIE))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("createMovie-dynamic.json")
+                        .withTransformers("response-template")));
+
+        movieRestClient.createMovie(new Movie("Toby Maguire", 42L, "Spider Man", LocalDate.of(2002, 5, 3), 2002));
+
+        assertEquals("Spider Man", movieRestClient.getMovieByName("spider").get(0).getName());
+        verify(exactly(0), getRequestedFor(urlPathEqualTo(Get_MOVIE_BY_NAME)));
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getMovie_id).toList();
+    }
+
+    @Test
+    void catalogueAge_unknownUntilFirstLoad() {
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (MovieCatalogue catalogue = new MovieCatalogue(Flux::never, new MoviesAppProperties.Catalogue(), meterRegistry)) {
+            assertTrue(Double.isNaN(meterRegistry.get("movies.catalogue.age").gauge().value()));
+        }
+    }
+}
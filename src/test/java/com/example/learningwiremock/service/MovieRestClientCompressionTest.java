@@ -0,0 +1,123 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.netty.handler.codec.compression.Brotli;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * The codec limit is set below the size of {@code all-movies.json} (about 1.7KB), so these tests
+ * also fail if the list is ever aggregated into one buffer instead of decoded element by element.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.compression.enabled=true",
+        "moviesapp.compression.encodings=gzip,deflate,br",
+        "moviesapp.codec.max-in-memory-size=1KB"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientCompressionTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getAllMovies_gzipEncodedResponse_inflated() throws IOException, MovieNotFoundException {
+
+        //given the service compresses the catalogue
+        stubCatalogue("gzip", compress("/__files/all-movies.json", GZIPOutputStream::new));
+
+        List<Movie> movieList = movieRestClient.getAllMovies();
+
+        assertEquals(10, movieList.size());
+        verify(getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withHeader(HttpHeaders.ACCEPT_ENCODING, containing("gzip")));
+    }
+
+    @Test
+    void getAllMovies_deflateEncodedResponse_inflated() throws IOException, MovieNotFoundException {
+
+        //given the service deflates the catalogue
+        stubCatalogue("deflate", compress("/__files/all-movies.json", DeflaterOutputStream::new));
+
+        List<Movie> movieList = movieRestClient.getAllMovies();
+
+        assertEquals(10, movieList.size());
+        verify(getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withHeader(HttpHeaders.ACCEPT_ENCODING, containing("deflate")));
+    }
+
+    @Test
+    void getAllMovies_brotliUnavailable_brNotOffered() throws MovieNotFoundException {
+
+        //given Brotli4j is not on the classpath
+        assumeFalse(Brotli.isAvailable());
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        movieRestClient.getAllMovies();
+
+        verify(getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withHeader(HttpHeaders.ACCEPT_ENCODING, equalTo("gzip, deflate")));
+    }
+
+    private void stubCatalogue(String encoding, byte[] body) {
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.CONTENT_ENCODING, encoding)
+                        .withBody(body)));
+    }
+
+    private static byte[] compress(String resource, Compressor compressor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = MovieRestClientCompressionTest.class.getResourceAsStream(resource);
+             OutputStream out = compressor.wrap(bytes)) {
+            in.transferTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Compressor {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.DeadlineExceededException;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.resilience.enabled=true",
+        "moviesapp.timeouts.operations.get-movie-by-id=300ms"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientDeadlineTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieById_slowerThanOperationTimeout_failsWithinBudget() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(3000)));
+
+        long start = System.currentTimeMillis();
+        assertThrows(DeadlineExceededException.class, () -> movieRestClient.getMovieById(1L));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue("call should give up after its 300ms budget, took " + elapsed + "ms", elapsed < 2000);
+    }
+
+    @Test
+    void getAllMovies_callerDeadline_sentAsHeader() {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        StepVerifier.create(reactiveMovieClient.getAllMovies().contextWrite(Deadline.within(Duration.ofSeconds(5))))
+                .thenConsumeWhile(movie -> movie.getMovie_id() != null)
+                .verifyComplete();
+
+        List<LoggedRequest> requests = findAll(getRequestedFor(urlEqualTo(GET_ALL_MOVIES)));
+        assertEquals(1, requests.size());
+        long announced = Long.parseLong(requests.get(0).getHeader("X-Request-Timeout"));
+        assertTrue("announced " + announced + "ms", announced > 0 && announced <= 5000);
+    }
+
+    @Test
+    void getAllMovies_noDeadline_noHeader() {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        StepVerifier.create(reactiveMovieClient.getAllMovies())
+                .thenConsumeWhile(movie -> movie.getMovie_id() != null)
+                .verifyComplete();
+
+        verify(exactly(1), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withoutHeader("X-Request-Timeout"));
+    }
+
+    @Test
+    void getMovieByYear_retries_announceShrinkingBudget() {
+
+        //given the service keeps failing
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieYear"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        StepVerifier.create(reactiveMovieClient.getMovieByYear(2012).contextWrite(Deadline.within(Duration.ofSeconds(10))))
+                .expectError()
+                .verify();
+
+        List<LoggedRequest> attempts = findAll(getRequestedFor(urlPathEqualTo("/movieservice/v1/movieYear")));
+        assertEquals(3, attempts.size());
+        long previous = Long.MAX_VALUE;
+        for (LoggedRequest attempt : attempts) {
+            long announced = Long.parseLong(attempt.getHeader("X-Request-Timeout"));
+            assertTrue("each retry should announce less time than the attempt before it", announced < previous);
+            previous = announced;
+        }
+    }
+
+    @Test
+    void getMovieById_expiredDeadline_neverSent() {
+
+        StepVerifier.create(reactiveMovieClient.getMovieById(2L).contextWrite(Deadline.within(Duration.ZERO)))
+                .expectError(DeadlineExceededException.class)
+                .verify();
+
+        verify(exactly(0), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.hedging.enabled=true",
+        "moviesapp.hedging.max-delay=200ms"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientHedgingTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieById_slowPrimary_answeredByHedge() throws MovieNotFoundException {
+
+        //given a warmed-up client, so the hedge is not sent together with a cold first request
+        stubFor(get(urlEqualTo("/movieservice/v1/movie/1"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+        movieRestClient.getMovieById(1L);
+
+        //given the first request stalls and the next one is fast
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+")).inScenario("stall")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(4000))
+                .willSetStateTo("fast"));
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+")).inScenario("stall")
+                .whenScenarioStateIs("fast")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+
+        long start = System.currentTimeMillis();
+        Movie movie = movieRestClient.getMovieById(7L);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(Long.valueOf(7L), movie.getMovie_id());
+        assertTrue("hedge should answer long before the stalled request, took " + elapsed + "ms", elapsed < 3000);
+        verify(exactly(2), getRequestedFor(urlEqualTo("/movieservice/v1/movie/7")));
+    }
+
+    @Test
+    void getMovieById_fastPrimary_noHedge() throws MovieNotFoundException {
+
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+
+        movieRestClient.getMovieById(8L);
+
+        verify(exactly(1), getRequestedFor(urlEqualTo("/movieservice/v1/movie/8")));
+    }
+}
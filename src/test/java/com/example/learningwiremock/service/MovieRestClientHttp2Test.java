@@ -0,0 +1,119 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppConfig;
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.model.MovieBatchResult;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.netty.http.HttpProtocol;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * WireMock's Jetty accepts cleartext HTTP/2 on its plain port, which stands in for an HTTP/2 movie
+ * service here.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.http.protocols=H2C",
+        "moviesapp.http.max-concurrent-streams=50",
+        "moviesapp.batch.concurrency=120",
+        "moviesapp.pool.name=movies-h2"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientHttp2Test {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void stubMovieById() {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(100)));
+    }
+
+    @Test
+    void getMovieById_overCleartextHttp2() throws MovieNotFoundException {
+
+        Movie movie = movieRestClient.getMovieById(1L);
+
+        assertEquals(Long.valueOf(1L), movie.getMovie_id());
+        assertEquals("HTTP/2.0", wireMockServer.getAllServeEvents().get(0).getRequest().getProtocol());
+    }
+
+    @Test
+    void getMoviesByIds_fanOutMultiplexed() {
+
+        //given more concurrent lookups than streams per connection
+        List<Long> ids = LongStream.rangeClosed(1, 120).boxed().toList();
+
+        MovieBatchResult result = movieRestClient.getMoviesByIds(ids);
+
+        assertTrue(result.isComplete());
+        assertEquals(120, result.getMovies().size());
+        assertTrue(wireMockServer.getAllServeEvents().stream()
+                .map(ServeEvent::getRequest)
+                .allMatch(request -> "HTTP/2.0".equals(request.getProtocol())));
+        // at most 50 streams per connection, yet far fewer connections than lookups
+        double connections = connections();
+        assertTrue("connections: " + connections, connections >= 2 && connections <= 3);
+    }
+
+    @Test
+    void http11WithH2c_rejected() {
+
+        //given an upgrade from HTTP/1.1, which may leave connections on HTTP/1.1
+        MoviesAppProperties properties = new MoviesAppProperties();
+        properties.getHttp().setProtocols(EnumSet.of(HttpProtocol.HTTP11, HttpProtocol.H2C));
+
+        assertThrows(IllegalStateException.class, () -> new MoviesAppConfig().moviesConnectionProvider(properties));
+    }
+
+    /** Connections of the pool under the HTTP/2 streams, which Reactor Netty meters as {@code movies-h2}. */
+    private static double connections() {
+        return Metrics.globalRegistry.get("reactor.netty.connection.provider.total.connections")
+                .tag("name", "movies-h2")
+                .gauge().value();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.example.learningwiremock.constants.MovieConstants.GET_MOVIE_BY_YEAR;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.list-cache.enabled=true",
+        "moviesapp.list-cache.soft-ttl=200ms"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientListCacheTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getAllMovies_upstreamFails_staleAnswerServedAtOnce() throws MovieNotFoundException, InterruptedException {
+
+        //given a cached answer past its soft TTL
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+        List<Movie> cached = movieRestClient.getAllMovies();
+        Thread.sleep(300);
+
+        //when the service starts dropping connections
+        stubFor(get(GET_ALL_MOVIES).willReturn(aResponse().withFault(Fault.EMPTY_RESPONSE)));
+
+        long start = System.currentTimeMillis();
+        List<Movie> stale = movieRestClient.getAllMovies();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(cached, stale);
+        assertTrue("stale answer should not wait for the service, took " + elapsed + "ms", elapsed < 500);
+        assertTrue(meterRegistry.get("movies.client.listcache.staleness").tag("endpoint", "GET_ALL_MOVIES").summary().count() >= 1);
+
+        //the failed revalidation leaves the answer in place
+        for (int i = 0; i < 50 && revalidations("failure") == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(revalidations("failure") >= 1);
+        assertEquals(cached, movieRestClient.getAllMovies());
+    }
+
+    @Test
+    void getMovieByYear_freshServedFromCache_staleServedWhileUpstreamIsSlow() throws MovieNotFoundException, InterruptedException {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_MOVIE_BY_YEAR))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieByYear.json")
+                        .withTransformers("response-template")));
+        List<Movie> cached = movieRestClient.getMovieByYear(2005);
+        assertEquals(cached, movieRestClient.getMovieByYear(2005));
+        verify(exactly(1), getRequestedFor(urlPathEqualTo(GET_MOVIE_BY_YEAR)));
+        Thread.sleep(300);
+
+        //when the service slows down
+        stubFor(get(urlPathEqualTo(GET_MOVIE_BY_YEAR))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieByYear.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(3000)));
+
+        long start = System.currentTimeMillis();
+        List<Movie> stale = movieRestClient.getMovieByYear(2005);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(cached, stale);
+        assertTrue("stale answer should not wait for the service, took " + elapsed + "ms", elapsed < 500);
+    }
+
+    private double revalidations(String result) {
+        return meterRegistry.find("movies.client.listcache.revalidations")
+                .tag("endpoint", "GET_ALL_MOVIES")
+                .tag("result", result)
+                .counters().stream().mapToDouble(counter -> counter.count()).sum();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.config.MoviesAppProperties;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8095",
+        "moviesapp.resilience.enabled=true",
+        "moviesapp.load-balancer.instances=http://localhost:8095,http://localhost:8096,http://localhost:8097",
+        "moviesapp.load-balancer.latency-outlier-factor=0",
+        "moviesapp.load-balancer.health-check-path=/health",
+        "moviesapp.load-balancer.health-check-interval=100ms"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class MovieRestClientLoadBalancingTest {
+    static WireMockServer fastA = server(8095);
+    static WireMockServer fastB = server(8096);
+    static WireMockServer slow = server(8097);
+
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @Autowired
+    MoviesAppProperties properties;
+
+    @BeforeAll
+    static void startInstances() {
+        List.of(fastA, fastB, slow).forEach(WireMockServer::start);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        List.of(fastA, fastB, slow).forEach(WireMockServer::stop);
+    }
+
+    @BeforeEach
+    void stubInstances() {
+        for (WireMockServer server : List.of(fastA, fastB, slow)) {
+            server.resetAll();
+            server.stubFor(get("/health").willReturn(ok()));
+            server.stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                    .willReturn(WireMock.aResponse()
+                            .withStatus(HttpStatus.OK.value())
+                            .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .withBodyFile("movie-template.json")
+                            .withTransformers("response-template")
+                            .withFixedDelay(server == slow ? 250 : 5)));
+        }
+    }
+
+    @Test
+    void powerOfTwoChoices_sendsLittleTrafficToSlowInstance() {
+
+        //given a fresh balancer, which has learned no latencies yet
+        Flux.range(1, 300)
+                .flatMap(id -> reactiveMovieClient.getMovieById(id.longValue()), 8)
+                .blockLast();
+
+        //then the slow instance served well under the third round robin would have sent it
+        int slowRequests = slow.countRequestsMatching(getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")).build()).getCount();
+        assertTrue("slow instance served " + slowRequests + " of 300", slowRequests < 300 / 3 / 2);
+    }
+
+    @Test
+    void failingInstance_isEjected() {
+
+        //given one instance answers with 503, and a retry always lands on another one
+        slow.stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(aResponse().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+        properties.getLoadBalancer().setStrategy(MoviesAppProperties.LoadBalancer.Strategy.ROUND_ROBIN);
+
+        Flux.range(1, 100)
+                .concatMap(id -> reactiveMovieClient.getMovieById(id.longValue()))
+                .blockLast();
+
+        assertEquals(5, slow.countRequestsMatching(getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")).build()).getCount());
+    }
+
+    @Test
+    void instanceFailingHealthCheck_receivesNoTraffic() throws InterruptedException {
+
+        //given one instance fails its health check
+        slow.stubFor(get("/health").willReturn(serviceUnavailable()));
+        Thread.sleep(500);
+
+        Flux.range(1, 50)
+                .flatMap(id -> reactiveMovieClient.getMovieById(id.longValue()), 4)
+                .blockLast();
+
+        assertEquals(0, slow.countRequestsMatching(getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")).build()).getCount());
+    }
+
+    private static WireMockServer server(int port) {
+        return new WireMockServer(wireMockConfig()
+                .port(port)
+                .notifier(new ConsoleNotifier(false))
+                .extensions(new ResponseTemplateTransformer(true)));
+    }
+}
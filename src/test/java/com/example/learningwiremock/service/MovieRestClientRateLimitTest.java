@@ -0,0 +1,115 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.RateLimitedException;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.rate-limit.enabled=true",
+        "moviesapp.rate-limit.defaults.burst=2",
+        "moviesapp.rate-limit.endpoints.get-movie-by-id.rate=1",
+        "moviesapp.rate-limit.max-wait=200ms"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientRateLimitTest {
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieById_overBurst_rejectedWithoutRequest() {
+
+        //given the endpoint's own rate and the default burst
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+
+        StepVerifier.create(reactiveMovieClient.getMovieById(1L)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(reactiveMovieClient.getMovieById(2L)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(reactiveMovieClient.getMovieById(3L))
+                .expectErrorSatisfies(ex -> {
+                    assertTrue(ex instanceof RateLimitedException);
+                    assertEquals(MovieEndpoint.GET_MOVIE_BY_ID, ((RateLimitedException) ex).getEndpoint());
+                    assertTrue(((RateLimitedException) ex).getRetryAfter().compareTo(Duration.ofMillis(200)) > 0);
+                })
+                .verify();
+
+        verify(exactly(2), getRequestedFor(urlPathMatching("/movieservice/v1/movie/[0-9]+")));
+        assertEquals(1.0, meterRegistry.get("movies.client.ratelimit.requests")
+                .tag("endpoint", MovieEndpoint.GET_MOVIE_BY_ID.name())
+                .tag("result", "rejected")
+                .counter().count(), 0);
+    }
+
+    @Test
+    void getMovieByName_429WithRetryAfter_pausesEndpoint() {
+
+        //given the service is over its quota for a second
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.TOO_MANY_REQUESTS.value())
+                        .withHeader(HttpHeaders.RETRY_AFTER, "1")));
+
+        StepVerifier.create(reactiveMovieClient.getMovieByName("Avengers"))
+                .expectErrorSatisfies(ex -> {
+                    assertTrue(ex instanceof RateLimitedException);
+                    assertEquals(Duration.ofSeconds(1), ((RateLimitedException) ex).getRetryAfter());
+                })
+                .verify();
+        StepVerifier.create(reactiveMovieClient.getMovieByName("Batman"))
+                .expectError(RateLimitedException.class)
+                .verify();
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieName")));
+
+        //when the pause is over
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("avengers.json")));
+        StepVerifier.create(reactiveMovieClient.getMovieByName("Avengers").delaySubscription(Duration.ofMillis(1100)))
+                .thenConsumeWhile(movie -> movie.getMovie_id() != null)
+                .verifyComplete();
+        verify(exactly(2), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieName")));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.*;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.resilience.enabled=true",
+        "moviesapp.resilience.defaults.initial-backoff=10ms",
+        "moviesapp.resilience.endpoints.get-movie-by-year.max-attempts=1",
+        "moviesapp.resilience.endpoints.get-movie-by-year.sliding-window-size=2",
+        "moviesapp.resilience.endpoints.get-movie-by-year.minimum-number-of-calls=2"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientResilienceTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    ResilienceDecorator resilienceDecorator;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true));
+
+    @BeforeEach
+    void closeCircuitBreakers() {
+        resilienceDecorator.getCircuitBreakerRegistry().getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+    }
+
+    @Test
+    void getAllMovies_serverError_retriedUpToMaxAttempts() {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES).willReturn(serverError()));
+
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getAllMovies());
+        verify(exactly(3), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)));
+    }
+
+    @Test
+    void getAllMovies_recoversAfterTransientFailure() throws MovieNotFoundException {
+
+        //given the first call fails and the second one succeeds
+        stubFor(get(GET_ALL_MOVIES).inScenario("flaky")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(serviceUnavailable())
+                .willSetStateTo("recovered"));
+        stubFor(get(GET_ALL_MOVIES).inScenario("flaky")
+                .whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        List<Movie> movieList = movieRestClient.getAllMovies();
+
+        assertTrue(movieList.size() > 0);
+        verify(exactly(2), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)));
+    }
+
+    @Test
+    void createMovie_serverError_notRetried() {
+
+        Movie movie = new Movie("anand", null, "Anand's SCAM", LocalDate.of(1997, 2, 13), 1997);
+        stubFor(post(CREATE_MOVIE).willReturn(serverError()));
+
+        assertThrows(MovieNotCreated.class, () -> movieRestClient.createMovie(movie));
+        verify(exactly(1), postRequestedFor(urlEqualTo(CREATE_MOVIE)));
+    }
+
+    @Test
+    void getMovieByYear_circuitOpensAfterFailures() {
+
+        //given
+        stubFor(get(urlPathEqualTo(GET_MOVIE_BY_YEAR)).willReturn(serverError()));
+
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieByYear(2012));
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieByYear(2012));
+
+        //the breaker is open now, so the call fails without reaching the service
+        assertThrows(CallNotPermittedException.class, () -> movieRestClient.getMovieByYear(2012));
+        verify(exactly(2), getRequestedFor(urlPathEqualTo(GET_MOVIE_BY_YEAR)));
+    }
+}
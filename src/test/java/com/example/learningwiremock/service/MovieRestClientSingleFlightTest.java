@@ -0,0 +1,114 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientSingleFlightTest {
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getMovieByYear_concurrentIdenticalCalls_shareOneRequest() {
+
+        //given a slow upstream
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieYear"))
+                .withQueryParam("year", equalTo("2012"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieByYear.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(300)));
+        double followersBefore = followers(MovieEndpoint.GET_MOVIE_BY_YEAR);
+
+        List<List<Movie>> results = Flux.range(0, 50)
+                .flatMap(i -> reactiveMovieClient.getMovieByYear(2012).collectList(), 50)
+                .collectList()
+                .block();
+
+        assertEquals(50, results.size());
+        results.forEach(movies -> assertEquals(results.get(0).size(), movies.size()));
+        assertNotSame("every caller gets its own copies", results.get(0).get(0), results.get(1).get(0));
+        assertEquals(49, followers(MovieEndpoint.GET_MOVIE_BY_YEAR) - followersBefore, 0.0);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieYear")));
+    }
+
+    @Test
+    void getMovieByName_oneCallerCancels_othersStillServed() {
+
+        //given a slow upstream
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieName"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("avengers.json")
+                        .withFixedDelay(300)));
+
+        Disposable impatient = reactiveMovieClient.getMovieByName("Avengers").subscribe();
+        List<Movie> movies = reactiveMovieClient.getMovieByName("Avengers")
+                .doOnSubscribe(subscription -> impatient.dispose())
+                .collectList()
+                .block();
+
+        assertTrue(movies.size() > 0);
+        verify(exactly(1), getRequestedFor(urlPathEqualTo("/movieservice/v1/movieName")));
+    }
+
+    @Test
+    void key_ignoresParameterOrder() {
+        assertEquals(SingleFlight.key(MovieEndpoint.GET_MOVIE_BY_NAME, URI.create("/movieservice/v1/movieName?movie_name=Avengers&page=1")),
+                SingleFlight.key(MovieEndpoint.GET_MOVIE_BY_NAME, URI.create("/movieservice/v1/movieName?page=1&movie_name=Avengers")));
+    }
+
+    private double followers(MovieEndpoint endpoint) {
+        return meterRegistry.get("movies.client.singleflight.calls")
+                .tag("endpoint", endpoint.name())
+                .tag("role", "follower")
+                .counter().count();
+    }
+}
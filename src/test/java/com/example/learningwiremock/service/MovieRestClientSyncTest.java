@@ -0,0 +1,216 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every test starts without a remembered catalogue, hence a fresh context per test.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.sync.enabled=true",
+        "moviesapp.sync.delta=true"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientSyncTest {
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getAllMovies_unchanged_304ServedFromLastResponse() throws MovieNotFoundException {
+
+        //given the catalogue is tagged and revalidating the tag yields 304
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"v1\"")
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES)).atPriority(1)
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\""))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_MODIFIED.value())
+                        .withHeader(HttpHeaders.ETAG, "\"v1\"")));
+
+        List<Movie> first = movieRestClient.getAllMovies();
+        List<Movie> second = movieRestClient.getAllMovies();
+
+        assertEquals(10, first.size());
+        assertEquals(first, second);
+        verify(exactly(1), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withoutHeader(HttpHeaders.IF_NONE_MATCH));
+        verify(exactly(1), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\"")));
+    }
+
+    @Test
+    void getAllMovies_changed_200ReplacesLastResponse() throws MovieNotFoundException {
+
+        //given a service without delta support whose catalogue changes between the calls
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"v1\"")
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES)).atPriority(1)
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"v1\""))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"v2\"")
+                        .withBodyFile("avengers.json")));
+
+        movieRestClient.getAllMovies();
+        List<Movie> changed = movieRestClient.getAllMovies();
+
+        assertEquals(4, changed.size());
+    }
+
+    @Test
+    void getAllMovies_delta_mergedIntoLastResponse() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", equalTo("2015-10-21T07:28:00Z"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, "Thu, 22 Oct 2015 07:28:00 GMT")
+                        .withBody("[{\"movie_id\": 1, \"name\": \"Batman Begins (Remastered)\", \"year\": 2005},"
+                                + "{\"movie_id\": 11, \"name\": \"Inception\", \"year\": 2010}]")));
+
+        movieRestClient.getAllMovies();
+        List<Movie> merged = movieRestClient.getAllMovies();
+
+        assertEquals(11, merged.size());
+        assertEquals("Batman Begins (Remastered)", merged.get(0).getName());
+        assertEquals("Inception", merged.get(10).getName());
+        verify(exactly(1), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", equalTo("2015-10-21T07:28:00Z"))
+                .withHeader(HttpHeaders.IF_MODIFIED_SINCE, equalTo(LAST_MODIFIED)));
+    }
+
+    @Test
+    void getAllMovies_deltaMovieWithoutId_ignored() throws MovieNotFoundException {
+
+        //given a delta with a movie that cannot be matched to any other
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", equalTo("2015-10-21T07:28:00Z"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, "Thu, 22 Oct 2015 07:28:00 GMT")
+                        .withBody("[{\"name\": \"Untitled\", \"year\": 2010},"
+                                + "{\"movie_id\": 11, \"name\": \"Inception\", \"year\": 2010}]")));
+
+        movieRestClient.getAllMovies();
+        List<Movie> merged = movieRestClient.getAllMovies();
+
+        assertEquals(11, merged.size());
+        assertTrue(merged.stream().allMatch(movie -> movie.getMovie_id() != null));
+    }
+
+    @Test
+    void getAllMovies_deltaRejected_fallsBackToFullResponse() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", matching(".+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.BAD_REQUEST.value())));
+
+        movieRestClient.getAllMovies();
+        List<Movie> movies = movieRestClient.getAllMovies();
+
+        assertEquals(10, movies.size());
+        verify(exactly(2), getRequestedFor(urlEqualTo(GET_ALL_MOVIES)));
+    }
+
+    @Test
+    void getAllMovies_afterDelta_doesNotRevalidateWithTheDeltasTag() throws MovieNotFoundException {
+
+        //given a delta tagged on its own, after which deltas are rejected
+        stubFor(get(urlEqualTo(GET_ALL_MOVIES))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"v1\"")
+                        .withHeader(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED)
+                        .withBodyFile("all-movies.json")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", equalTo("2015-10-21T07:28:00Z"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withHeader(HttpHeaders.ETAG, "\"delta-1\"")
+                        .withHeader(HttpHeaders.LAST_MODIFIED, "Thu, 22 Oct 2015 07:28:00 GMT")
+                        .withBody("[{\"movie_id\": 11, \"name\": \"Inception\", \"year\": 2010}]")));
+        stubFor(get(urlPathEqualTo(GET_ALL_MOVIES))
+                .withQueryParam("updatedSince", equalTo("2015-10-22T07:28:00Z"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.BAD_REQUEST.value())));
+
+        movieRestClient.getAllMovies();
+        movieRestClient.getAllMovies();
+        List<Movie> movies = movieRestClient.getAllMovies();
+
+        assertEquals(10, movies.size());
+        verify(exactly(0), getRequestedFor(urlPathEqualTo(GET_ALL_MOVIES))
+                .withHeader(HttpHeaders.IF_NONE_MATCH, equalTo("\"delta-1\"")));
+    }
+}
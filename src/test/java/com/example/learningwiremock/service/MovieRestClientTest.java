@@ -3,7 +3,11 @@ package com.example.learningwiremock.service;
 import com.example.learningwiremock.constants.MovieConstants;
 import com.example.learningwiremock.exception.MovieNotCreated;
 import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.CompactMovie;
 import com.example.learningwiremock.model.Movie;
+import com.example.learningwiremock.model.MovieBatchResult;
+import com.example.learningwiremock.model.MovieIngestResult;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
 import com.github.jenspiegsa.wiremockextension.InjectServer;
 import com.github.jenspiegsa.wiremockextension.WireMockExtension;
@@ -12,10 +16,13 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
 import com.github.tomakehurst.wiremock.core.Options;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,12 +30,15 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.example.learningwiremock.constants.MovieConstants.*;
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 //import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
@@ -41,6 +51,9 @@ public class MovieRestClientTest {
     @Autowired
     MovieRestClient movieRestClient;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @InjectServer
     WireMockServer wireMockServer;
 
@@ -85,6 +98,57 @@ public class MovieRestClientTest {
         assertTrue(movieList.size() > 0);
     }
 
+    @Test
+    void getAllMoviesCompact_decodesEveryField_sharesCast() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(MovieConstants.GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        List<CompactMovie> first = movieRestClient.getAllMoviesCompact();
+        List<CompactMovie> second = movieRestClient.getAllMoviesCompact();
+
+        //then
+        assertEquals(10, first.size());
+        CompactMovie batmanBegins = first.get(0);
+        assertEquals(1L, batmanBegins.movieId());
+        assertEquals("Batman Begins", batmanBegins.name());
+        assertEquals(2005, batmanBegins.year());
+        assertEquals(LocalDate.of(2005, 6, 15), batmanBegins.releaseDate());
+        assertEquals(batmanBegins.toMovie(), movieRestClient.getAllMovies().get(0));
+        //equal casts are one shared instance
+        assertSame(batmanBegins.cast(), second.get(0).cast());
+    }
+
+    @Test
+    void getAllMovies_malformedField_failsInsteadOfCoercing() {
+
+        //given a year that is not a number
+        stubFor(get(MovieConstants.GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"movie_id\": 1, \"name\": \"Batman Begins\", \"year\": \"twenty\"}]")));
+
+        DecodingException notANumber = assertThrows(DecodingException.class, () -> movieRestClient.getAllMovies());
+
+        //given a name that is an object and a release date that does not exist
+        stubFor(get(MovieConstants.GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"movie_id\": 1, \"name\": {\"en\": \"Batman Begins\"}, \"release_date\": \"2005-13-45\"}]")));
+
+        DecodingException notAName = assertThrows(DecodingException.class, () -> movieRestClient.getAllMoviesCompact());
+
+        assertTrue(notANumber.getCause() instanceof JsonMappingException);
+        assertTrue(notAName.getCause() instanceof JsonMappingException);
+    }
+
     @Test
     void getMovieByID_urlPathEqualsTo_workForOnly_movieID_one() throws MovieNotFoundException {
 
@@ -157,6 +221,20 @@ public class MovieRestClientTest {
 
     }
 
+    @Test
+    void getMovieByID_429WithRateLimitingOff_throwsMovieNotFoundException() {
+
+        //Given the service is over its quota and client-side rate limiting is off
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.TOO_MANY_REQUESTS.value())
+                        .withHeader(HttpHeaders.RETRY_AFTER, "1")));
+
+        Long id = 429l;
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieById(id));
+
+    }
+
     @Test
     void getMovieByName_approach1_queryParam() throws MovieNotFoundException {
 
@@ -376,4 +454,162 @@ public class MovieRestClientTest {
         verify(moreThan(0),deleteRequestedFor(urlEqualTo(Get_MOVIE_BY_NAME + "?movie_name=" + movie1.getName())));
     }
 
-}
\ No newline at end of file
+    @Test
+    void streamAllMovies_ndjson_consumerReceivesEveryMovie() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                        .withBodyFile("all-movies.ndjson")));
+
+        //when
+        List<Movie> streamed = new ArrayList<>();
+        movieRestClient.streamAllMovies(streamed::add);
+
+        //then every line of the file was decoded
+        assertEquals(10, streamed.size());
+        assertEquals("Batman Begins", streamed.get(0).getName());
+    }
+
+    @Test
+    void streamAllMovies_jsonArray_asStream() {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //when
+        long count;
+        try (Stream<Movie> movies = movieRestClient.streamAllMovies()) {
+            count = movies.filter(movie -> movie.getMovie_id() != null).count();
+        }
+
+        //then
+        assertEquals(10, count);
+    }
+
+    @Test
+    void streamMovieByYear_404NotFound() {
+
+        Integer year = 2005;
+        //Given
+        stubFor(get(urlEqualTo(GET_MOVIE_BY_YEAR + "?year=" + year))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieByYear.json")
+                        .withTransformers("response-template")));
+
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.streamMovieByYear(year, movie -> { }));
+    }
+
+    @Test
+    void getMoviesByIds_partialFailure_keepsOrderAndReportsErrors() {
+
+        //Given every id resolves except 3
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movie/3"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieById.json")
+                        .withTransformers("response-template")));
+
+        MovieBatchResult result = movieRestClient.getMoviesByIds(List.of(5L, 1L, 3L, 5L, 2L));
+
+        assertEquals(List.of(5L, 1L, 2L), new ArrayList<>(result.getMovies().keySet()));
+        assertTrue(result.getErrors().get(3L) instanceof MovieNotFoundException);
+        //duplicates are only fetched once
+        verify(exactly(1), getRequestedFor(urlEqualTo("/movieservice/v1/movie/5")));
+    }
+
+    @Test
+    void ingestMovies_partialFailure_reportsEachMovieInOrder() {
+
+        //Given creates succeed unless the movie is named "invalid", and updates succeed
+        stubFor(post(CREATE_MOVIE)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("createMovie-dynamic.json")
+                        .withTransformers("response-template")));
+        stubFor(post(CREATE_MOVIE).atPriority(1)
+                .withRequestBody(matchingJsonPath("$.name", equalTo("invalid")))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.BAD_REQUEST.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("400-invalid-input.json")));
+        stubFor(put(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("updateMovie.json")
+                        .withTransformers("response-template")));
+
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            String name = i % 50 == 7 ? "invalid" : "movie " + i;
+            movies.add(new Movie("cast " + i, null, name, LocalDate.of(2000, 1, 1), 2000));
+        }
+        movies.add(new Movie("Michael Caine", 1L, "Batman Begins", null, null));
+
+        MovieIngestResult result = movieRestClient.ingestMovies(movies);
+
+        assertEquals(List.of(7L, 57L, 107L, 157L, 207L), new ArrayList<>(result.getFailures().keySet()));
+        assertEquals(246, result.getWritten().size());
+        assertEquals("movie 0", result.getWritten().get(0).getName());
+        assertEquals(Long.valueOf(1L), result.getWritten().get(245).getMovie_id());
+        assertThrows(MovieNotCreated.class, result::throwIfFailed);
+        verify(exactly(250), postRequestedFor(urlEqualTo(CREATE_MOVIE)));
+        verify(exactly(1), putRequestedFor(urlEqualTo("/movieservice/v1/movie/1")));
+    }
+
+    @Test
+    void getMovieById_404_recordedInMetrics() {
+
+        //Given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieById.json")
+                        .withTransformers("response-template")));
+
+        assertThrows(MovieNotFoundException.class, () -> movieRestClient.getMovieById(404L));
+
+        Counter errors = meterRegistry.find("movies.client.errors")
+                .tag("endpoint", "GET_MOVIE_BY_ID")
+                .tag("status", "404")
+                .counter();
+        assertTrue(errors != null && errors.count() >= 1);
+        assertTrue(meterRegistry.find("movies.client.requests").tag("endpoint", "GET_MOVIE_BY_ID").timer().count() >= 1);
+        assertEquals(0, meterRegistry.get("movies.client.inflight").tag("endpoint", "GET_MOVIE_BY_ID").gauge().value(), 0.0);
+    }
+
+    @Test
+    void getAllMovies_compressionOffByDefault_noAcceptEncoding() throws MovieNotFoundException {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        List<Movie> movieList = movieRestClient.getAllMovies();
+
+        assertEquals(10, movieList.size());
+        verify(getRequestedFor(urlEqualTo(GET_ALL_MOVIES)).withoutHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+}
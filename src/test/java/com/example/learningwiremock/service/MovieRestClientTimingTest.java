@@ -0,0 +1,123 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.constants.MovieEndpoint;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.timings.enabled=true",
+        "moviesapp.timings.slow-request-threshold=400ms"})
+@ExtendWith(WireMockExtension.class)
+@ExtendWith(OutputCaptureExtension.class)
+public class MovieRestClientTimingTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getAllMovies_slowServer_attributedToServerPhase(CapturedOutput output) throws MovieNotFoundException {
+
+        //given a warmed-up client
+        warmUp();
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")
+                        .withFixedDelay(600)));
+
+        List<Movie> movies = movieRestClient.getAllMovies();
+
+        assertTrue(movies.size() > 0);
+        assertTrue(phaseMillis(MovieEndpoint.GET_ALL_MOVIES, "server") >= 550);
+        assertTrue(phaseMillis(MovieEndpoint.GET_ALL_MOVIES, "body") < 400);
+        assertEquals(1, phase(MovieEndpoint.GET_ALL_MOVIES, "decode").count());
+        assertTrue(output.getOut(), output.getOut().contains("Slow GET_ALL_MOVIES GET ")
+                && output.getOut().contains(GET_ALL_MOVIES + " took "));
+    }
+
+    @Test
+    void getMovieByYear_slowBody_attributedToBodyPhase() throws MovieNotFoundException {
+
+        //given a warmed-up client, and the headers come at once and the body trickles in
+        warmUp();
+        stubFor(get(urlPathEqualTo("/movieservice/v1/movieYear"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movieByYear.json")
+                        .withTransformers("response-template")
+                        .withChunkedDribbleDelay(5, 600)));
+
+        List<Movie> movies = movieRestClient.getMovieByYear(2012);
+
+        assertEquals(2, movies.size());
+        assertTrue(phaseMillis(MovieEndpoint.GET_MOVIE_BY_YEAR, "server") < 400);
+        assertTrue(phaseMillis(MovieEndpoint.GET_MOVIE_BY_YEAR, "body") >= 400);
+    }
+
+    /** A first exchange on another endpoint, so the cold start is not timed as part of the one under test. */
+    private void warmUp() throws MovieNotFoundException {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")));
+        movieRestClient.getMovieById(1L);
+    }
+
+    private Timer phase(MovieEndpoint endpoint, String phase) {
+        return meterRegistry.get("movies.client.request.phases")
+                .tag("endpoint", endpoint.name())
+                .tag("phase", phase)
+                .timer();
+    }
+
+    private double phaseMillis(MovieEndpoint endpoint, String phase) {
+        return phase(endpoint, phase).max(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.LongStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091",
+        "moviesapp.blocking.virtual-threads=true",
+        "moviesapp.resilience.enabled=false"})
+@ExtendWith(WireMockExtension.class)
+public class MovieRestClientVirtualThreadsTest {
+    @Autowired
+    MovieRestClient movieRestClient;
+
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @BeforeEach
+    void stubMovieById() {
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("movie-template.json")
+                        .withTransformers("response-template")
+                        .withFixedDelay(200)));
+    }
+
+    @Test
+    void submit_runsBlockingCallsOnVirtualThreads() {
+
+        //given more concurrent blocking callers than a platform pool would hold
+        List<CompletableFuture<Boolean>> calls = LongStream.rangeClosed(1, 300)
+                .mapToObj(id -> movieRestClient.submit(client -> {
+                    Movie movie = client.getMovieById(id);
+                    return movie.getMovie_id() == id && Thread.currentThread().isVirtual();
+                }))
+                .toList();
+
+        List<Boolean> results = calls.stream().map(CompletableFuture::join).toList();
+
+        assertEquals(300, results.size());
+        assertTrue(results.stream().allMatch(Boolean::booleanValue));
+    }
+
+    @Test
+    void submit_failureCompletesWithCheckedException() {
+
+        //given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieById.json")
+                        .withTransformers("response-template")));
+
+        CompletionException ex = assertThrows(CompletionException.class,
+                () -> movieRestClient.submit(client -> client.getMovieById(999L)).join());
+
+        assertTrue(ex.getCause() instanceof MovieNotFoundException);
+    }
+
+    @Test
+    void blockingCallOnEventLoop_isRejected() {
+
+        //the response of the outer call is delivered on a Netty event loop
+        assertThrows(IllegalStateException.class, () -> reactiveMovieClient.getMovieById(1L)
+                .map(movie -> movieRestClient.getMoviesByIds(List.of(2L)))
+                .block());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.learningwiremock.service;
+
+import com.example.learningwiremock.exception.MovieNotCreated;
+import com.example.learningwiremock.exception.MovieNotFoundException;
+import com.example.learningwiremock.model.Movie;
+import com.github.jenspiegsa.wiremockextension.ConfigureWireMock;
+import com.github.jenspiegsa.wiremockextension.InjectServer;
+import com.github.jenspiegsa.wiremockextension.WireMockExtension;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+import static com.example.learningwiremock.constants.MovieConstants.CREATE_MOVIE;
+import static com.example.learningwiremock.constants.MovieConstants.GET_ALL_MOVIES;
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@TestPropertySource(properties = {"moviesapp.baseUrl=http://localhost:8091"})
+@ExtendWith(WireMockExtension.class)
+public class ReactiveMovieClientTest {
+    @Autowired
+    ReactiveMovieClient reactiveMovieClient;
+
+    @InjectServer
+    WireMockServer wireMockServer;
+
+    @ConfigureWireMock
+    Options options = wireMockConfig().
+            port(8091)
+            .notifier(new ConsoleNotifier(true))
+            .extensions(new ResponseTemplateTransformer(true));
+
+    @Test
+    void getAllMovies_emitsEveryMovie() {
+
+        //given
+        stubFor(get(GET_ALL_MOVIES)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("all-movies.json")));
+
+        //then the flux completes with the movies from the file
+        StepVerifier.create(reactiveMovieClient.getAllMovies())
+                .expectNextMatches(movie -> movie.getName().equals("Batman Begins"))
+                .thenConsumeWhile(movie -> movie.getMovie_id() != null)
+                .verifyComplete();
+    }
+
+    @Test
+    void getMovieById_404_signalsMovieNotFoundException() {
+
+        //Given
+        stubFor(get(urlPathMatching("/movieservice/v1/movie/[0-9]+"))
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.NOT_FOUND.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("404-movieById.json")
+                        .withTransformers("response-template")));
+
+        StepVerifier.create(reactiveMovieClient.getMovieById(500L))
+                .expectError(MovieNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void createMovie_400_signalsMovieNotCreated() {
+        Movie movie = new Movie("anand", null, null, LocalDate.of(1997, 2, 13), 1997);
+        stubFor(post(CREATE_MOVIE)
+                .willReturn(WireMock.aResponse()
+                        .withStatus(HttpStatus.BAD_REQUEST.value())
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .withBodyFile("400-invalid-input.json")
+                        .withTransformers("response-template")));
+
+        StepVerifier.create(reactiveMovieClient.createMovie(movie))
+                .expectError(MovieNotCreated.class)
+                .verify();
+    }
+}